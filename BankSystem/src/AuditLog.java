@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the outcome of every transaction without doing any I/O on the
+ * caller's thread. log() only copies an entry into a fixed-size ring; a
+ * daemon thread drains the ring in batches, formats the entries and writes
+ * them out. When the ring is full, the policy decides whether the caller
+ * waits (BLOCK) or an entry is given up: the new one (DROP_NEWEST) or the
+ * oldest waiting one (DROP_OLDEST). Dropped entries are counted and reported
+ * in the log itself.
+ */
+public class AuditLog implements AutoCloseable {
+    public enum Policy { BLOCK, DROP_NEWEST, DROP_OLDEST }
+
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private final Entry[] ring;
+    private final Policy policy;
+    private final Writer out;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Guarded by lock
+    private int head;
+    private int count;
+    private boolean closed;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread drainer;
+
+    public AuditLog(Writer out, int capacity, Policy policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.ring = new Entry[capacity];
+        this.policy = policy;
+        this.out = out;
+        drainer = new Thread(this::drain, "audit-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Appends to file, sized and configured by the bank.audit.capacity and
+     * bank.audit.policy system properties; by default entries are dropped
+     * rather than ever making a transaction wait. A property that is not a
+     * valid setting is reported and the default used instead.
+     */
+    public static AuditLog open(Path file) throws IOException {
+        int capacity = capacityProperty();
+        Policy policy = policyProperty();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return new AuditLog(writer, capacity, policy);
+    }
+
+    private static int capacityProperty() {
+        String text = System.getProperty("bank.audit.capacity");
+        if (text == null) return DEFAULT_CAPACITY;
+        try {
+            int capacity = Integer.parseInt(text.trim());
+            if (capacity > 0) return capacity;
+        } catch (NumberFormatException ignored) {
+        }
+        System.out.println("Invalid bank.audit.capacity \"" + text + "\", using " + DEFAULT_CAPACITY);
+        return DEFAULT_CAPACITY;
+    }
+
+    private static Policy policyProperty() {
+        String text = System.getProperty("bank.audit.policy");
+        if (text == null) return Policy.DROP_NEWEST;
+        try {
+            return Policy.valueOf(text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid bank.audit.policy \"" + text + "\", using " + Policy.DROP_NEWEST
+                    + " (one of " + Arrays.toString(Policy.values()) + ")");
+            return Policy.DROP_NEWEST;
+        }
+    }
+
+    // other is the destination account for transfers and the holder's name when opening an account
+    public void log(TransactionLedger.EventType type, String account, String other, long amount,
+                    TransactionResult result) {
+        Entry entry = new Entry(System.currentTimeMillis(), type, account, other, amount, result);
+        lock.lock();
+        try {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (count == ring.length) {
+                switch (policy) {
+                    case BLOCK:
+                        while (count == ring.length && !closed) notFull.awaitUninterruptibly();
+                        if (closed) {
+                            dropped.incrementAndGet();
+                            return;
+                        }
+                        break;
+                    case DROP_NEWEST:
+                        dropped.incrementAndGet();
+                        return;
+                    case DROP_OLDEST:
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        count--;
+                        dropped.incrementAndGet();
+                        break;
+                }
+            }
+            ring[(head + count) % ring.length] = entry;
+            if (count++ == 0) notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Writes out whatever is still queued, then stops the drain thread
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        Entry[] batch = new Entry[ring.length];
+        long reportedDrops = 0;
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int n;
+            boolean last;
+            lock.lock();
+            try {
+                while (count == 0 && !closed) notEmpty.awaitUninterruptibly();
+                n = count;
+                for (int i = 0; i < n; i++) {
+                    batch[i] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                count = 0;
+                last = closed;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            text.setLength(0);
+            long drops = dropped.get();
+            if (drops > reportedDrops) {
+                text.append(Instant.now()).append(" DROPPED ").append(drops - reportedDrops).append(" entries\n");
+                reportedDrops = drops;
+            }
+            for (int i = 0; i < n; i++) {
+                batch[i].appendTo(text);
+                batch[i] = null;
+            }
+            try {
+                out.write(text.toString());
+                out.flush();
+            } catch (IOException e) {
+                // Nothing else to report to; keep the money path unaffected
+                dropped.addAndGet(n);
+            }
+            if (last) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+                return;
+            }
+        }
+    }
+
+    private static class Entry {
+        final long time;
+        final TransactionLedger.EventType type;
+        final String account;
+        final String other;
+        final long amount;
+        final TransactionResult result;
+
+        Entry(long time, TransactionLedger.EventType type, String account, String other, long amount,
+              TransactionResult result) {
+            this.time = time;
+            this.type = type;
+            this.account = account;
+            this.other = other;
+            this.amount = amount;
+            this.result = result;
+        }
+
+        void appendTo(StringBuilder text) {
+            text.append(Instant.ofEpochMilli(time)).append(' ').append(type).append(' ').append(account);
+            if (type == TransactionLedger.EventType.OPEN) {
+                text.append(' ').append(other);
+            } else if (!other.isEmpty()) {
+                text.append(" -> ").append(other);
+            }
+            text.append(' ').append(BankAccount.formatAmount(amount)).append(' ').append(result).append('\n');
+        }
+    }
+}
@@ -1,39 +1,71 @@
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class BankAccount {
-    private String accountNumber;
-    private String accountHolderName;
-    private double balance;
+    private final String accountNumber;
+    private final String accountHolderName;
+    // In cents, so amounts are never rounded; changed only by compare-and-set
+    private final AtomicLong balance;
+    // Null when no history is kept
+    final TransactionLedger ledger;
+
+    // Shared by every account; transactions are only reported here, never printed
+    private static volatile AuditLog auditLog;
 
     public BankAccount(String accountNumber, String accountHolderName) {
+        this(accountNumber, accountHolderName, 0, null);
+    }
+
+    BankAccount(String accountNumber, String accountHolderName, long balance, TransactionLedger ledger) {
         this.accountNumber = accountNumber;
         this.accountHolderName = accountHolderName;
-        this.balance = 0.0;
+        this.balance = new AtomicLong(balance);
+        this.ledger = ledger;
     }
 
-    public double getBalance() {
-        return balance;
+    public long getBalance() {
+        return balance.get();
     }
 
 
-    public void deposit(double amount) {
-        if (amount > 0) {
-            balance += amount;
-            System.out.println("Deposited: " + amount);
-        } else {
-            System.out.println("Invalid amount.");
+    public TransactionResult deposit(long amount) {
+        TransactionResult result = amount > 0 && tryCredit(amount)
+                ? TransactionResult.SUCCESS : TransactionResult.INVALID_AMOUNT;
+        if (result == TransactionResult.SUCCESS && ledger != null) {
+            ledger.record(TransactionLedger.EventType.DEPOSIT, accountNumber, "", amount);
         }
+        audit(TransactionLedger.EventType.DEPOSIT, accountNumber, "", amount, result);
+        return result;
     }
 
-    public void withdraw(double amount) {
-        if (amount > 0 && amount <= balance) {
-            balance -= amount;
-            System.out.println("Withdrawn: " + amount);
-        } else {
-            System.out.println("Insufficient balance or invalid amount.");
+    public TransactionResult withdraw(long amount) {
+        TransactionResult result = amount <= 0 ? TransactionResult.INVALID_AMOUNT
+                : tryDebit(amount) ? TransactionResult.SUCCESS : TransactionResult.INSUFFICIENT_FUNDS;
+        if (result == TransactionResult.SUCCESS && ledger != null) {
+            ledger.record(TransactionLedger.EventType.WITHDRAW, accountNumber, "", amount);
         }
+        audit(TransactionLedger.EventType.WITHDRAW, accountNumber, "", amount, result);
+        return result;
     }
 
-    public void displayBalance() {
-        System.out.println("Balance: " + balance);
+    boolean tryCredit(long amount) {
+        if (amount <= 0) return false;
+        long current;
+        do {
+            current = balance.get();
+            if (current > Long.MAX_VALUE - amount) return false;
+        } while (!balance.compareAndSet(current, current + amount));
+        return true;
+    }
+
+    // The balance check and the debit are one compare-and-set, so two withdrawals can't both pass the check
+    boolean tryDebit(long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (amount <= 0 || amount > current) return false;
+        } while (!balance.compareAndSet(current, current - amount));
+        return true;
     }
 
     public String getAccountNumber() {
@@ -43,4 +75,34 @@ public class BankAccount {
     public String getAccountHolderName() {
         return accountHolderName;
     }
+
+    public static void setAuditLog(AuditLog log) {
+        auditLog = log;
+    }
+
+    static void audit(TransactionLedger.EventType type, String account, String other, long amount,
+                      TransactionResult result) {
+        AuditLog log = auditLog;
+        if (log != null) log.log(type, account, other, amount, result);
+    }
+
+    // "12.5" becomes 1250 cents; more than two decimal places is rejected rather than rounded
+    public static long parseAmount(String text) {
+        try {
+            BigDecimal amount = new BigDecimal(text.trim());
+            if (amount.stripTrailingZeros().scale() > 2) {
+                throw new NumberFormatException("At most two decimal places: " + text);
+            }
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new NumberFormatException("Amount too large: " + text);
+        }
+    }
+
+    public static String formatAmount(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return sign + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
 }
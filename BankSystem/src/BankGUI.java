@@ -1,27 +1,51 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 
 public class BankGUI {
     private JFrame frame;
-    private JTextField accNumField, nameField, amountField;
+    private JTextField accNumField, nameField, amountField, toAccNumField;
     private HashMap<String, BankAccount> accounts = new HashMap<>();
+    private TransactionLedger ledger;
+    private AuditLog auditLog;
 
     public BankGUI() {
         frame = new JFrame("Bank Management System");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        try {
+            ledger = TransactionLedger.open(Paths.get("data"), accounts);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not open the ledger, history will not be kept: " + e.getMessage());
+        }
+        try {
+            auditLog = AuditLog.open(Paths.get("data", "audit.log"));
+            BankAccount.setAuditLog(auditLog);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not open the audit log: " + e.getMessage());
+        }
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (ledger != null) ledger.close();
+                if (auditLog != null) auditLog.close();
+            }
+        });
         frame.setSize(400, 400);
         frame.setLayout(new GridLayout(8, 1, 10, 10));
 
         accNumField = new JTextField();
         nameField = new JTextField();
         amountField = new JTextField();
+        toAccNumField = new JTextField();
 
         JButton createBtn = new JButton("Create Account");
         JButton depositBtn = new JButton("Deposit");
         JButton withdrawBtn = new JButton("Withdraw");
         JButton checkBtn = new JButton("Check Balance");
+        JButton transferBtn = new JButton("Transfer");
 
         frame.add(new JLabel("Account Number:"));
         frame.add(accNumField);
@@ -32,16 +56,21 @@ public class BankGUI {
         frame.add(new JLabel("Amount:"));
         frame.add(amountField);
 
+        frame.add(new JLabel("Transfer To Account:"));
+        frame.add(toAccNumField);
+
         frame.add(createBtn);
         frame.add(depositBtn);
         frame.add(withdrawBtn);
         frame.add(checkBtn);
+        frame.add(transferBtn);
 
         // Button actions
         createBtn.addActionListener(e -> createAccount());
         depositBtn.addActionListener(e -> deposit());
         withdrawBtn.addActionListener(e -> withdraw());
         checkBtn.addActionListener(e -> checkBalance());
+        transferBtn.addActionListener(e -> transfer());
 
         frame.setVisible(true);
     }
@@ -53,17 +82,25 @@ public class BankGUI {
         if (accounts.containsKey(accNum)) {
             JOptionPane.showMessageDialog(frame, "Account already exists.");
         } else {
-            accounts.put(accNum, new BankAccount(accNum, name));
+            accounts.put(accNum, new BankAccount(accNum, name, 0, ledger));
+            if (ledger != null) ledger.record(TransactionLedger.EventType.OPEN, accNum, name, 0);
+            BankAccount.audit(TransactionLedger.EventType.OPEN, accNum, name, 0, TransactionResult.SUCCESS);
             JOptionPane.showMessageDialog(frame, "Account created.");
         }
     }
 
     private void deposit() {
         String accNum = accNumField.getText();
-        double amount = Double.parseDouble(amountField.getText());
         BankAccount account = accounts.get(accNum);
         if (account != null) {
-            account.deposit(amount);
+            try {
+                long amount = BankAccount.parseAmount(amountField.getText());
+                TransactionResult result = account.deposit(amount);
+                JOptionPane.showMessageDialog(frame, result == TransactionResult.SUCCESS
+                        ? "Deposited: " + BankAccount.formatAmount(amount) : result.getMessage());
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(frame, "Invalid amount.");
+            }
         } else {
             JOptionPane.showMessageDialog(frame, "Account not found.");
         }
@@ -71,20 +108,38 @@ public class BankGUI {
 
     private void withdraw() {
         String accNum = accNumField.getText();
-        double amount = Double.parseDouble(amountField.getText());
         BankAccount account = accounts.get(accNum);
         if (account != null) {
-            account.withdraw(amount);
+            try {
+                long amount = BankAccount.parseAmount(amountField.getText());
+                TransactionResult result = account.withdraw(amount);
+                JOptionPane.showMessageDialog(frame, result == TransactionResult.SUCCESS
+                        ? "Withdrawn: " + BankAccount.formatAmount(amount) : result.getMessage());
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(frame, "Invalid amount.");
+            }
         } else {
             JOptionPane.showMessageDialog(frame, "Account not found.");
         }
     }
 
+    private void transfer() {
+        try {
+            long amount = BankAccount.parseAmount(amountField.getText());
+            TransactionResult result = TransferService.transfer(accounts, accNumField.getText(),
+                    toAccNumField.getText(), amount);
+            JOptionPane.showMessageDialog(frame, result == TransactionResult.SUCCESS
+                    ? "Transferred: " + BankAccount.formatAmount(amount) : result.getMessage());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(frame, "Invalid amount.");
+        }
+    }
+
     private void checkBalance() {
         String accNum = accNumField.getText();
         BankAccount account = accounts.get(accNum);
         if (account != null) {
-            JOptionPane.showMessageDialog(frame, "Balance: " + account.getBalance());
+            JOptionPane.showMessageDialog(frame, "Balance: " + BankAccount.formatAmount(account.getBalance()));
         } else {
             JOptionPane.showMessageDialog(frame, "Account not found.");
         }
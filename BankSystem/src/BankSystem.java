@@ -1,20 +1,43 @@
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BankSystem {
-    static HashMap<String, BankAccount> accounts = new HashMap<>();
+    static Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
     static Scanner sc = new Scanner(System.in);
+    static TransactionLedger ledger;
+    static AuditLog auditLog;
 
     public static void main(String[] args) {
         String option;
+        try {
+            ledger = TransactionLedger.open(Paths.get("data"), accounts);
+            if (!accounts.isEmpty()) System.out.println("Restored " + accounts.size() + " accounts.");
+        } catch (IOException e) {
+            System.out.println("Could not open the ledger, history will not be kept: " + e.getMessage());
+        }
+        try {
+            auditLog = AuditLog.open(Paths.get("data", "audit.log"));
+            BankAccount.setAuditLog(auditLog);
+        } catch (IOException e) {
+            System.out.println("Could not open the audit log: " + e.getMessage());
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
 
         do {
             System.out.println("\n--- Bank Management System ---");
             System.out.println("1. Create Account");
             System.out.println("2. Deposit");
             System.out.println("3. Withdraw");
-            System.out.println("4. Check Balance");
-            System.out.println("5. Exit");
+            System.out.println("4. Transfer");
+            System.out.println("5. Check Balance");
+            System.out.println("6. Exit");
             System.out.print("Choose an option: ");
             option = sc.nextLine();
 
@@ -29,16 +52,47 @@ public class BankSystem {
                     withdrawMoney();
                     break;
                 case "4":
-                    checkBalance();
+                    transferMoney();
                     break;
                 case "5":
+                    checkBalance();
+                    break;
+                case "6":
+                    if (ledger != null) ledger.close();
+                    if (auditLog != null) auditLog.close();
                     System.out.println("Thank you for using the Bank System!");
                     break;
                 default:
                     System.out.println("Invalid option.");
             }
 
-        } while (!option.equals("5"));
+        } while (!option.equals("6"));
+    }
+
+    // --batch FILE [--workers=N]
+    static void runBatch(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: BankSystem --batch FILE [--workers=N]");
+            return;
+        }
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--workers=")) {
+                workers = Math.max(1, Integer.parseInt(args[i].substring("--workers=".length())));
+            }
+        }
+        try {
+            BatchProcessor.run(Paths.get(args[1]), accounts, ledger, workers).print();
+        } catch (NoSuchFileException e) {
+            System.out.println("File not found: " + args[1]);
+        } catch (IOException e) {
+            System.out.println("Batch failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (ledger != null) ledger.close();
+            if (auditLog != null) auditLog.close();
+        }
     }
 
     static void createAccount() {
@@ -51,8 +105,12 @@ public class BankSystem {
 
         System.out.print("Enter Account Holder Name: ");
         String name = sc.nextLine();
-        BankAccount account = new BankAccount(accNum, name);
-        accounts.put(accNum, account);
+        if (accounts.putIfAbsent(accNum, new BankAccount(accNum, name, 0, ledger)) != null) {
+            System.out.println("Account already exists.");
+            return;
+        }
+        if (ledger != null) ledger.record(TransactionLedger.EventType.OPEN, accNum, name, 0);
+        BankAccount.audit(TransactionLedger.EventType.OPEN, accNum, name, 0, TransactionResult.SUCCESS);
         System.out.println("Account created successfully!");
     }
 
@@ -62,8 +120,14 @@ public class BankSystem {
         BankAccount account = accounts.get(accNum);
         if (account != null) {
             System.out.print("Enter amount to deposit: ");
-            double amount = Double.parseDouble(sc.nextLine());
-            account.deposit(amount);
+            try {
+                long amount = BankAccount.parseAmount(sc.nextLine());
+                TransactionResult result = account.deposit(amount);
+                System.out.println(result == TransactionResult.SUCCESS
+                        ? "Deposited: " + BankAccount.formatAmount(amount) : result.getMessage());
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid amount.");
+            }
         } else {
             System.out.println("Account not found.");
         }
@@ -75,19 +139,44 @@ public class BankSystem {
         BankAccount account = accounts.get(accNum);
         if (account != null) {
             System.out.print("Enter amount to withdraw: ");
-            double amount = Double.parseDouble(sc.nextLine());
-            account.withdraw(amount);
+            try {
+                long amount = BankAccount.parseAmount(sc.nextLine());
+                TransactionResult result = account.withdraw(amount);
+                System.out.println(result == TransactionResult.SUCCESS
+                        ? "Withdrawn: " + BankAccount.formatAmount(amount) : result.getMessage());
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid amount.");
+            }
         } else {
             System.out.println("Account not found.");
         }
     }
 
+    static void transferMoney() {
+        System.out.print("Enter From Account Number: ");
+        String fromNum = sc.nextLine();
+        System.out.print("Enter To Account Number: ");
+        String toNum = sc.nextLine();
+        System.out.print("Enter amount to transfer: ");
+        try {
+            long amount = BankAccount.parseAmount(sc.nextLine());
+            TransactionResult result = TransferService.transfer(accounts, fromNum, toNum, amount);
+            if (result == TransactionResult.SUCCESS) {
+                System.out.println("Transferred: " + BankAccount.formatAmount(amount));
+            } else {
+                System.out.println(result.getMessage());
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid amount.");
+        }
+    }
+
     static void checkBalance() {
         System.out.print("Enter Account Number: ");
         String accNum = sc.nextLine();
         BankAccount account = accounts.get(accNum);
         if (account != null) {
-            account.displayBalance();
+            System.out.println("Balance: " + BankAccount.formatAmount(account.getBalance()));
         } else {
             System.out.println("Account not found.");
         }
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Applies a transaction file with one operation per line:
+ * create,ACCOUNT,Holder Name / deposit,ACCOUNT,12.50 / withdraw,ACCOUNT,5.
+ * Blank lines and lines starting with # are skipped. A single reader streams
+ * the file through a FileChannel and routes each line, by a hash of its
+ * account number, into a batch for one worker; so every line for an account
+ * goes to the same worker and is applied in file order, while different
+ * accounts are processed in parallel. Each worker's queue is bounded, so the
+ * reader never gets far ahead of them.
+ */
+public class BatchProcessor {
+    private static final int READ_BUFFER = 1 << 20;
+    private static final int BATCH_BYTES = 1 << 18;
+    private static final int QUEUE_BATCHES = 4;
+    private static final Batch END = new Batch(0);
+
+    public static class Summary {
+        final long lines;
+        final long bytes;
+        final long malformed;
+        final long elapsedNanos;
+        final int workers;
+        final Map<TransactionResult, Long> results;
+
+        Summary(long lines, long bytes, long malformed, long elapsedNanos, int workers,
+                Map<TransactionResult, Long> results) {
+            this.lines = lines;
+            this.bytes = bytes;
+            this.malformed = malformed;
+            this.elapsedNanos = elapsedNanos;
+            this.workers = workers;
+            this.results = results;
+        }
+
+        public void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.println("\n--- Batch Summary ---");
+            System.out.printf("Lines: %,d in %.2f s with %d workers%n", lines, seconds, workers);
+            System.out.printf("Throughput: %,.0f lines/s, %.1f MB/s%n", lines / seconds, bytes / seconds / 1e6);
+            for (Map.Entry<TransactionResult, Long> e : results.entrySet()) {
+                System.out.printf("%-20s %,d%n", e.getKey() + ":", e.getValue());
+            }
+            System.out.printf("%-20s %,d%n", "MALFORMED:", malformed);
+        }
+    }
+
+    public static Summary run(Path file, Map<String, BankAccount> accounts, TransactionLedger ledger,
+                              int workerCount) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        if (ledger != null) ledger.setFlushEachRecord(false);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            Worker worker = new Worker(accounts, ledger);
+            worker.setName("batch-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        long lines = 0;
+        long bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bytes = channel.size();
+            Batch[] pending = new Batch[workerCount];
+            for (int i = 0; i < workerCount; i++) pending[i] = new Batch(BATCH_BYTES);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+            byte[] data = buffer.array();
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (data[i] != '\n') continue;
+                    lines += route(data, lineStart, i + 1, workers, pending);
+                    lineStart = i + 1;
+                }
+                if (eof && lineStart < limit) {
+                    // Last line without a newline
+                    lines += route(data, lineStart, limit, workers, pending);
+                    lineStart = limit;
+                }
+                if (lineStart == 0 && limit == data.length) {
+                    throw new IOException("Line longer than " + READ_BUFFER + " bytes in " + file);
+                }
+                // Carry the partial last line over to the next read
+                System.arraycopy(data, lineStart, data, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+            }
+            for (int i = 0; i < workerCount; i++) {
+                if (pending[i].length > 0) workers.get(i).queue.put(pending[i]);
+            }
+        } finally {
+            for (Worker worker : workers) worker.queue.put(END);
+            for (Worker worker : workers) worker.join();
+            if (ledger != null) ledger.setFlushEachRecord(true);
+        }
+
+        Map<TransactionResult, Long> results = new EnumMap<>(TransactionResult.class);
+        long malformed = 0;
+        for (Worker worker : workers) {
+            if (worker.failure != null) throw worker.failure;
+        }
+        for (Worker worker : workers) {
+            for (TransactionResult r : TransactionResult.values()) {
+                long n = worker.counts[r.ordinal()];
+                if (n > 0) results.merge(r, n, Long::sum);
+            }
+            malformed += worker.malformed;
+        }
+        return new Summary(lines, bytes, malformed, System.nanoTime() - start, workerCount, results);
+    }
+
+    // Returns 1 if the line [from, to) was handed to a worker, 0 if it was blank or a comment
+    private static int route(byte[] data, int from, int to, List<Worker> workers, Batch[] pending)
+            throws InterruptedException {
+        int end = to;
+        while (end > from && (data[end - 1] == '\n' || data[end - 1] == '\r')) end--;
+        if (end == from || data[from] == '#') return 0;
+
+        // Hash the account number, the second field
+        int i = from;
+        while (i < end && data[i] != ',') i++;
+        int h = 0;
+        for (i++; i < end && data[i] != ','; i++) h = 31 * h + data[i];
+        int w = Math.floorMod(h ^ (h >>> 16), workers.size());
+
+        Batch batch = pending[w];
+        int length = end - from + 1;
+        if (batch.length + length > batch.data.length) {
+            if (batch.length > 0) workers.get(w).queue.put(batch);
+            batch = pending[w] = new Batch(Math.max(BATCH_BYTES, length));
+        }
+        System.arraycopy(data, from, batch.data, batch.length, end - from);
+        batch.data[batch.length + length - 1] = '\n';
+        batch.length += length;
+        return 1;
+    }
+
+    private static class Batch {
+        final byte[] data;
+        int length;
+
+        Batch(int capacity) {
+            data = new byte[capacity];
+        }
+    }
+
+    private static class Worker extends Thread {
+        final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        final long[] counts = new long[TransactionResult.values().length];
+        long malformed;
+        // Set if applying a line failed; later batches are still taken so the reader never blocks
+        RuntimeException failure;
+        private final Map<String, BankAccount> accounts;
+        private final TransactionLedger ledger;
+
+        Worker(Map<String, BankAccount> accounts, TransactionLedger ledger) {
+            this.accounts = accounts;
+            this.ledger = ledger;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Batch batch = queue.take(); batch != END; batch = queue.take()) {
+                    if (failure != null) continue;
+                    try {
+                        int lineStart = 0;
+                        for (int i = 0; i < batch.length; i++) {
+                            if (batch.data[i] != '\n') continue;
+                            apply(batch.data, lineStart, i);
+                            lineStart = i + 1;
+                        }
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void apply(byte[] data, int from, int to) {
+            int c1 = indexOf(data, from, to, ',');
+            int c2 = c1 < 0 ? -1 : indexOf(data, c1 + 1, to, ',');
+            if (c2 < 0 || c2 == c1 + 1) {
+                malformed++;
+                return;
+            }
+            String accNum = new String(data, c1 + 1, c2 - c1 - 1, StandardCharsets.UTF_8);
+            TransactionResult result;
+            if (matches(data, from, c1, "create")) {
+                String name = new String(data, c2 + 1, to - c2 - 1, StandardCharsets.UTF_8).trim();
+                result = create(accNum, name);
+            } else {
+                boolean deposit = matches(data, from, c1, "deposit");
+                if (!deposit && !matches(data, from, c1, "withdraw")) {
+                    malformed++;
+                    return;
+                }
+                long amount = parseCents(data, c2 + 1, to);
+                if (amount < 0) {
+                    malformed++;
+                    return;
+                }
+                BankAccount account = accounts.get(accNum);
+                if (account == null) {
+                    result = TransactionResult.ACCOUNT_NOT_FOUND;
+                } else {
+                    result = deposit ? account.deposit(amount) : account.withdraw(amount);
+                }
+            }
+            counts[result.ordinal()]++;
+        }
+
+        private TransactionResult create(String accNum, String name) {
+            if (accounts.putIfAbsent(accNum, new BankAccount(accNum, name, 0, ledger)) != null) {
+                return TransactionResult.ACCOUNT_EXISTS;
+            }
+            if (ledger != null) ledger.record(TransactionLedger.EventType.OPEN, accNum, name, 0);
+            BankAccount.audit(TransactionLedger.EventType.OPEN, accNum, name, 0, TransactionResult.SUCCESS);
+            return TransactionResult.SUCCESS;
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int from, int to, String word) {
+        if (to - from != word.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if ((data[from + i] | 0x20) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Same rules as BankAccount.parseAmount, straight from the bytes; -1 if the text isn't an amount
+    private static long parseCents(byte[] data, int from, int to) {
+        while (from < to && data[from] == ' ') from++;
+        while (to > from && data[to - 1] == ' ') to--;
+        long cents = 0;
+        int fraction = -1;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (b >= '0' && b <= '9') {
+                digits = true;
+                if (fraction >= 2) {
+                    if (b != '0') return -1;
+                    continue;
+                }
+                if (cents > (Long.MAX_VALUE - 9) / 10) return -1;
+                cents = cents * 10 + (b - '0');
+                if (fraction >= 0) fraction++;
+            } else {
+                return -1;
+            }
+        }
+        if (!digits) return -1;
+        for (int f = Math.max(fraction, 0); f < 2; f++) {
+            if (cents > Long.MAX_VALUE / 10) return -1;
+            cents *= 10;
+        }
+        return cents;
+    }
+}
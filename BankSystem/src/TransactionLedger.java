@@ -0,0 +1,289 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only history of every account change, each with a sequence number.
+ * The ledger keeps its own running balance per account, and every
+ * SNAPSHOT_EVERY events (or once per account, if there are more accounts, so
+ * snapshots never cost more than the appends they save replaying) it writes
+ * those balances to a snapshot file together with the sequence number and
+ * log offset they cover. Recovery loads the
+ * snapshot and replays only the log after that offset. Records are framed as
+ * length, CRC32, payload, so a record torn by a crash is dropped.
+ */
+public class TransactionLedger {
+    public enum EventType { OPEN, DEPOSIT, WITHDRAW, TRANSFER }
+
+    static final int SNAPSHOT_EVERY = 1000;
+    private static final int SNAPSHOT_MAGIC = 0x4C444752;
+    private static final String LOG_FILE = "ledger.log";
+    private static final String SNAPSHOT_FILE = "ledger.snapshot";
+
+    private final Path dir;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    // Guarded by this
+    private long sequence;
+    private long offset;
+    private final Map<String, String> holders = new LinkedHashMap<>();
+    private final Map<String, Long> balances = new HashMap<>();
+    private final Object snapshotLock = new Object();
+    private long snapshotSequence;
+    private long nextSnapshot = SNAPSHOT_EVERY;
+    // Set when a snapshot falls due, until it is captured; volatile so the check skips the lock
+    private volatile boolean snapshotDue;
+    // Off while a batch runs; records then reach the file as the buffer fills and on flush()
+    private boolean flushEachRecord = true;
+
+    private TransactionLedger(Path dir) throws IOException {
+        this.dir = dir;
+        loadSnapshot();
+        channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayTail();
+        nextSnapshot = sequence + Math.max(SNAPSHOT_EVERY, holders.size());
+        // Drop anything after the last whole record, then append from there
+        channel.truncate(offset);
+        channel.position(offset);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Rebuilds every account recorded under dir into accounts and returns a
+     * ledger that records their further changes.
+     */
+    public static TransactionLedger open(Path dir, Map<String, BankAccount> accounts) throws IOException {
+        Files.createDirectories(dir);
+        TransactionLedger ledger = new TransactionLedger(dir);
+        for (Map.Entry<String, String> e : ledger.holders.entrySet()) {
+            String number = e.getKey();
+            accounts.put(number, new BankAccount(number, e.getValue(), ledger.balances.get(number), ledger));
+        }
+        return ledger;
+    }
+
+    // other is the holder's name for OPEN and the destination account for TRANSFER
+    public long record(EventType type, String account, String other, long amount) {
+        long seq;
+        Snapshot due = null;
+        synchronized (this) {
+            seq = append(type, account, other, amount);
+            if (snapshotDue) {
+                snapshotDue = false;
+                due = capture();
+            }
+        }
+        // Written outside the lock so recording carries on meanwhile
+        if (due != null) writeSnapshot(due);
+        return seq;
+    }
+
+    /**
+     * Same as record, for callers holding locks of their own: a snapshot that
+     * falls due is left for writePendingSnapshot, which they call once those
+     * locks are released, so no other thread waits on them during its fsync.
+     */
+    public synchronized long recordUnderLock(EventType type, String account, String other, long amount) {
+        return append(type, account, other, amount);
+    }
+
+    public void writePendingSnapshot() {
+        if (!snapshotDue) return;
+        Snapshot due;
+        synchronized (this) {
+            if (!snapshotDue) return;
+            snapshotDue = false;
+            due = capture();
+        }
+        writeSnapshot(due);
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    public synchronized void setFlushEachRecord(boolean flushEachRecord) {
+        this.flushEachRecord = flushEachRecord;
+        if (flushEachRecord) flush();
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the ledger", e);
+        }
+    }
+
+    public void close() {
+        Snapshot last;
+        synchronized (this) {
+            last = capture();
+        }
+        writeSnapshot(last);
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Could not close the ledger: " + e.getMessage());
+        }
+    }
+
+    // Caller holds this
+    private long append(EventType type, String account, String other, long amount) {
+        byte[] payload = encode(sequence + 1, type, account, other, amount);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try {
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            if (flushEachRecord) out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the ledger", e);
+        }
+        offset += 8 + payload.length;
+        apply(type, account, other, amount);
+        if (++sequence >= nextSnapshot) {
+            snapshotDue = true;
+            nextSnapshot = sequence + Math.max(SNAPSHOT_EVERY, holders.size());
+        }
+        return sequence;
+    }
+
+    // Caller holds this; the buffer is flushed so the snapshot's offset is in the file
+    private Snapshot capture() {
+        flush();
+        return new Snapshot(sequence, offset, holders, balances);
+    }
+
+    private void apply(EventType type, String account, String other, long amount) {
+        switch (type) {
+            case OPEN:
+                holders.put(account, other);
+                balances.putIfAbsent(account, 0L);
+                break;
+            case DEPOSIT:
+                balances.merge(account, amount, Long::sum);
+                break;
+            case WITHDRAW:
+                balances.merge(account, -amount, Long::sum);
+                break;
+            case TRANSFER:
+                balances.merge(account, -amount, Long::sum);
+                balances.merge(other, amount, Long::sum);
+                break;
+        }
+    }
+
+    private static byte[] encode(long seq, EventType type, String account, String other, long amount) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeLong(seq);
+            record.writeByte(type.ordinal());
+            record.writeUTF(account);
+            record.writeUTF(other);
+            record.writeLong(amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void replayTail() throws IOException {
+        long size = channel.size();
+        if (offset > size) {
+            // The log lost data the snapshot already covers; continue from its end
+            offset = size;
+            return;
+        }
+        channel.position(offset);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        CRC32 crc = new CRC32();
+        while (offset + 8 <= size) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || offset + 8 + length > size) break;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            long seq = record.readLong();
+            EventType type = EventType.values()[record.readByte()];
+            String account = record.readUTF();
+            String other = record.readUTF();
+            apply(type, account, other, record.readLong());
+            sequence = seq;
+            offset += 8 + length;
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a ledger snapshot: " + file);
+            sequence = in.readLong();
+            offset = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String number = in.readUTF();
+                holders.put(number, in.readUTF());
+                balances.put(number, in.readLong());
+            }
+            snapshotSequence = sequence;
+        }
+    }
+
+    private void writeSnapshot(Snapshot snapshot) {
+        synchronized (snapshotLock) {
+            if (snapshot.sequence <= snapshotSequence) return;
+            Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+            try {
+                // The snapshot points past these records, so they must be on disk first
+                channel.force(false);
+                try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                     DataOutputStream snap = new DataOutputStream(new BufferedOutputStream(file))) {
+                    snap.writeInt(SNAPSHOT_MAGIC);
+                    snap.writeLong(snapshot.sequence);
+                    snap.writeLong(snapshot.offset);
+                    snap.writeInt(snapshot.holders.size());
+                    for (Map.Entry<String, String> e : snapshot.holders.entrySet()) {
+                        snap.writeUTF(e.getKey());
+                        snap.writeUTF(e.getValue());
+                        snap.writeLong(snapshot.balances.get(e.getKey()));
+                    }
+                    snap.flush();
+                    file.getFD().sync();
+                }
+                Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                snapshotSequence = snapshot.sequence;
+            } catch (IOException e) {
+                // The log still has everything; recovery just replays more of it
+                System.out.println("Could not write ledger snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Snapshot {
+        final long sequence;
+        final long offset;
+        final Map<String, String> holders;
+        final Map<String, Long> balances;
+
+        Snapshot(long sequence, long offset, Map<String, String> holders, Map<String, Long> balances) {
+            this.sequence = sequence;
+            this.offset = offset;
+            this.holders = new LinkedHashMap<>(holders);
+            this.balances = new HashMap<>(balances);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+public enum TransactionResult {
+    SUCCESS("Transaction successful."),
+    INVALID_AMOUNT("Invalid amount."),
+    INSUFFICIENT_FUNDS("Insufficient balance."),
+    ACCOUNT_NOT_FOUND("Account not found."),
+    ACCOUNT_EXISTS("Account already exists."),
+    SAME_ACCOUNT("Cannot transfer to the same account.");
+
+    private final String message;
+
+    TransactionResult(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
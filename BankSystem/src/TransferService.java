@@ -0,0 +1,61 @@
+import java.util.Map;
+
+/**
+ * Moves money between two accounts as one step. Each account maps to one of a
+ * fixed set of lock stripes, and a transfer locks its two stripes in index
+ * order, so two transfers can never wait on each other in a cycle. Transfers
+ * touching different stripes run in parallel; single-account deposits and
+ * withdrawals stay lock-free.
+ */
+public class TransferService {
+    private static final int STRIPES = 256;
+    private static final Object[] LOCKS = new Object[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    public static TransactionResult transfer(Map<String, BankAccount> accounts, String fromNumber,
+                                             String toNumber, long amount) {
+        TransactionResult result = move(accounts, fromNumber, toNumber, amount);
+        BankAccount.audit(TransactionLedger.EventType.TRANSFER, fromNumber, toNumber, amount, result);
+        return result;
+    }
+
+    private static TransactionResult move(Map<String, BankAccount> accounts, String fromNumber,
+                                          String toNumber, long amount) {
+        if (amount <= 0) return TransactionResult.INVALID_AMOUNT;
+        BankAccount from = accounts.get(fromNumber);
+        BankAccount to = accounts.get(toNumber);
+        if (from == null || to == null) return TransactionResult.ACCOUNT_NOT_FOUND;
+        if (from == to) return TransactionResult.SAME_ACCOUNT;
+
+        int a = stripe(from);
+        int b = stripe(to);
+        Object first = LOCKS[Math.min(a, b)];
+        Object second = LOCKS[Math.max(a, b)];
+        synchronized (first) {
+            synchronized (second) {
+                if (!from.tryDebit(amount)) return TransactionResult.INSUFFICIENT_FUNDS;
+                if (!to.tryCredit(amount)) {
+                    // The credit would overflow; put the money back
+                    from.tryCredit(amount);
+                    return TransactionResult.INVALID_AMOUNT;
+                }
+                if (from.ledger != null) {
+                    from.ledger.recordUnderLock(TransactionLedger.EventType.TRANSFER, fromNumber, toNumber, amount);
+                }
+            }
+        }
+        // A snapshot that fell due is written only now, with both stripes free
+        if (from.ledger != null) from.ledger.writePendingSnapshot();
+        return TransactionResult.SUCCESS;
+    }
+
+    private static int stripe(BankAccount account) {
+        int h = account.getAccountNumber().hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
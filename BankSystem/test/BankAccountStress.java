@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hammers a few hot accounts from many threads with deposits and withdrawals
+ * and checks no update was lost: each final balance must equal its opening
+ * balance plus every successful deposit minus every successful withdrawal,
+ * and no balance may ever be seen below zero. A second round lets every
+ * thread race to withdraw one cent at a time from one account, so exactly
+ * the opening balance in cents must succeed. Runs at 1, 2, 4, ... threads up
+ * to the core count and prints the throughput; exits with status 1 if a
+ * check fails.
+ *
+ *   javac -d out src/*.java test/*.java && java -cp out BankAccountStress
+ */
+public class BankAccountStress {
+    private static final int ACCOUNTS = 4;
+    private static final long OPENING = 1_000_00;
+
+    public static void main(String[] args) throws InterruptedException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            mixedRound(threads, operations);
+            drainRound(threads);
+            if (threads == maxThreads) break;
+        }
+        System.out.println("No lost updates.");
+    }
+
+    private static void mixedRound(int threads, int operations) throws InterruptedException {
+        BankAccount[] accounts = new BankAccount[ACCOUNTS];
+        for (int a = 0; a < ACCOUNTS; a++) {
+            accounts[a] = new BankAccount("HOT" + a, "Holder " + a);
+            require(accounts[a].deposit(OPENING) == TransactionResult.SUCCESS, "opening deposit failed");
+        }
+        // Net change each thread saw succeed, per account
+        long[][] net = new long[threads][ACCOUNTS];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] mine = net[t];
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations / threads; i++) {
+                    int a = random.nextInt(ACCOUNTS);
+                    long amount = 1 + random.nextInt(5_000);
+                    if (random.nextBoolean()) {
+                        if (accounts[a].deposit(amount) == TransactionResult.SUCCESS) mine[a] += amount;
+                    } else {
+                        if (accounts[a].withdraw(amount) == TransactionResult.SUCCESS) mine[a] -= amount;
+                    }
+                    if (accounts[a].getBalance() < 0) {
+                        System.err.println("FAILED: negative balance on " + accounts[a].getAccountNumber());
+                        System.exit(1);
+                    }
+                }
+            }));
+        }
+        long elapsed = runAll(workers);
+        System.out.printf("threads=%d  %,.0f ops/s%n", threads, operations / (elapsed / 1e9));
+        for (int a = 0; a < ACCOUNTS; a++) {
+            long expected = OPENING;
+            for (long[] mine : net) expected += mine[a];
+            require(accounts[a].getBalance() == expected, accounts[a].getAccountNumber() + " holds "
+                    + accounts[a].getBalance() + " but the successful operations add up to " + expected);
+        }
+    }
+
+    // More withdrawals than the balance covers, all at once: exactly the balance may succeed
+    private static void drainRound(int threads) throws InterruptedException {
+        long cents = 200_000;
+        BankAccount account = new BankAccount("DRAIN", "Holder");
+        account.deposit(cents);
+        long[] succeeded = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int me = t;
+            workers.add(new Thread(() -> {
+                for (long i = 0; i < 2 * cents / threads + 1; i++) {
+                    if (account.withdraw(1) == TransactionResult.SUCCESS) succeeded[me]++;
+                }
+            }));
+        }
+        runAll(workers);
+        long total = 0;
+        for (long n : succeeded) total += n;
+        require(total == cents && account.getBalance() == 0,
+                total + " one-cent withdrawals succeeded from " + cents + ", balance " + account.getBalance());
+    }
+
+    private static long runAll(List<Thread> workers) throws InterruptedException {
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - start;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs transfers in both directions between a handful of hot accounts (and
+ * now and then a cold one) from many threads, alongside lock-free deposits
+ * and withdrawals on the same accounts. Afterwards the money across all
+ * accounts must equal what was opened plus the deposits minus the
+ * withdrawals that succeeded, whatever the transfers did, and the ledger,
+ * reopened from disk, must hold the same balances. A round that has not
+ * finished within a minute is reported as a deadlock. Runs at 1, 2, 4, ...
+ * threads up to the core count and prints the throughput; exits with status 1
+ * if a check fails.
+ *
+ *   javac -d out src/*.java test/*.java && java -cp out TransferServiceStress
+ */
+public class TransferServiceStress {
+    private static final int HOT = 8;
+    private static final int COLD = 1_000;
+    private static final long OPENING = 10_000_00;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            round(threads, operations);
+            if (threads == maxThreads) break;
+        }
+        System.out.println("Money conserved.");
+    }
+
+    private static void round(int threads, int operations) throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("transfer-stress");
+        Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+        TransactionLedger ledger = TransactionLedger.open(dir, accounts);
+        String[] numbers = new String[HOT + COLD];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = (i < HOT ? "HOT" : "COLD") + i;
+            accounts.put(numbers[i], new BankAccount(numbers[i], "Holder " + i, 0, ledger));
+            ledger.record(TransactionLedger.EventType.OPEN, numbers[i], "Holder " + i, 0);
+            require(accounts.get(numbers[i]).deposit(OPENING) == TransactionResult.SUCCESS, "opening deposit failed");
+        }
+
+        // Net deposits minus withdrawals each thread saw succeed
+        long[] net = new long[threads];
+        long[] transferred = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int me = t;
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations / threads; i++) {
+                    String from = pick(numbers, random);
+                    long amount = 1 + random.nextInt(50_000);
+                    int roll = random.nextInt(10);
+                    if (roll < 8) {
+                        if (TransferService.transfer(accounts, from, pick(numbers, random), amount)
+                                == TransactionResult.SUCCESS) transferred[me]++;
+                    } else if (roll == 8) {
+                        if (accounts.get(from).deposit(amount) == TransactionResult.SUCCESS) net[me] += amount;
+                    } else {
+                        if (accounts.get(from).withdraw(amount) == TransactionResult.SUCCESS) net[me] -= amount;
+                    }
+                }
+            }, "transfer-" + t));
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) {
+            w.join(TimeUnit.MINUTES.toMillis(1));
+            if (w.isAlive()) {
+                long[] stuck = ManagementFactory.getThreadMXBean().findDeadlockedThreads();
+                fail(stuck != null ? "deadlock between " + stuck.length + " threads" : w.getName() + " did not finish");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long moves = 0;
+        for (long n : transferred) moves += n;
+        System.out.printf("threads=%d  %,.0f ops/s  (%,d transfers)%n", threads, operations / (elapsed / 1e9), moves);
+
+        long expected = OPENING * numbers.length;
+        for (long n : net) expected += n;
+        long total = 0;
+        for (BankAccount account : accounts.values()) {
+            require(account.getBalance() >= 0, account.getAccountNumber() + " went below zero");
+            total += account.getBalance();
+        }
+        require(total == expected, "accounts hold " + total + " but deposits and withdrawals add up to " + expected);
+
+        ledger.close();
+        Map<String, BankAccount> restored = new ConcurrentHashMap<>();
+        TransactionLedger.open(dir, restored).close();
+        for (BankAccount account : accounts.values()) {
+            BankAccount copy = restored.get(account.getAccountNumber());
+            require(copy != null && copy.getBalance() == account.getBalance(),
+                    "ledger disagrees about " + account.getAccountNumber());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    // Mostly the hot accounts, so transfers keep colliding on the same locks
+    private static String pick(String[] numbers, ThreadLocalRandom random) {
+        return numbers[random.nextInt(20) == 0 ? HOT + random.nextInt(COLD) : random.nextInt(HOT)];
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) fail(message);
+    }
+
+    private static void fail(String message) {
+        System.err.println("FAILED: " + message);
+        System.exit(1);
+    }
+}
@@ -1,146 +1,2817 @@
+import javax.imageio.ImageIO;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 
 public class BurgerShopApp {
 
+    static final ExecutorService QUERY_EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "order-query");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Imports run on their own thread, so a long one never holds up table loads and searches
+    static final ExecutorService IMPORT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-import");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final Path DATA_DIR = Paths.get("data");
+    static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new HomeFrame(new OrderManager()).setVisible(true));
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            LoadSimulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        OrderManager manager = new OrderManager();
+        String journalError = null;
+        try {
+            OrderJournal.open(DATA_DIR, manager);
+            Runtime.getRuntime().addShutdownHook(new Thread(manager::close, "journal-shutdown"));
+            OrderSnapshot.schedule(DATA_DIR, manager, SNAPSHOT_INTERVAL_MINUTES);
+        } catch (IOException ex) {
+            journalError = ex.getMessage();
+        }
+        String error = journalError;
+        SwingUtilities.invokeLater(() -> {
+            HomeFrame home = new HomeFrame(manager);
+            home.setVisible(true);
+            if (error != null) {
+                JOptionPane.showMessageDialog(home, "Orders will not be saved: " + error,
+                        "Journal Unavailable", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    }
+
+    enum OrderStatus {
+        PREPARING, DELIVERED, CANCELLED
+    }
+
+    static class Customer {
+        private final long customerNumber;
+        private final String name;
+        private final String phone;
+
+        public Customer(long customerNumber, String name, String phone) {
+            this.customerNumber = customerNumber;
+            this.name = name;
+            this.phone = phone;
+        }
+
+        public long getCustomerNumber() { return customerNumber; }
+        public String getCustomerID() { return OrderManager.formatCustomerID(customerNumber); }
+        public String getName() { return name; }
+        public String getPhone() { return phone; }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Customer && ((Customer) other).customerNumber == customerNumber;
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(customerNumber); }
+    }
+
+    static class Order {
+        static final int UNIT_PRICE = 500;
+
+        private final long orderNumber;
+        private final Customer customer;
+        private volatile int quantity;
+        private volatile OrderStatus status;
+
+        public Order(long orderNumber, Customer customer, int quantity, OrderStatus status) {
+            this.orderNumber = orderNumber;
+            this.customer = customer;
+            this.quantity = quantity;
+            this.status = status;
+        }
+
+        public long getOrderNumber() { return orderNumber; }
+        public String getOrderID() { return OrderManager.formatOrderID(orderNumber); }
+        public Customer getCustomer() { return customer; }
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int q) { this.quantity = q; }
+        public OrderStatus getStatus() { return status; }
+        public void setStatus(OrderStatus status) { this.status = status; }
+        public int getTotal() { return quantity * UNIT_PRICE; }
+
+        // By order number, so a settled order copied out of the history store matches any other copy
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Order && ((Order) other).orderNumber == orderNumber;
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(orderNumber); }
+    }
+
+    /**
+     * Maps dense positive IDs to values through fixed-size segments, so the table
+     * grows without rehashing or copying and a lookup is two array reads with no
+     * boxing. Reads are lock-free; only creating a segment takes the lock.
+     */
+    static class IdTable<T> {
+        private static final int SEGMENT_BITS = 14;
+        private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+        private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+        private volatile AtomicReferenceArray<AtomicReferenceArray<T>> segments = new AtomicReferenceArray<>(16);
+        private final AtomicLong maxId = new AtomicLong();
+
+        T get(long id) {
+            AtomicReferenceArray<T> segment = segment(id);
+            return segment == null ? null : segment.get((int) (id & SEGMENT_MASK));
+        }
+
+        // Returns the value already stored under id, or null if value was stored
+        T putIfAbsent(long id, T value) {
+            AtomicReferenceArray<T> segment = segment(id);
+            if (segment == null) segment = createSegment(id);
+            int slot = (int) (id & SEGMENT_MASK);
+            if (!segment.compareAndSet(slot, null, value)) return segment.get(slot);
+            maxId.accumulateAndGet(id, Math::max);
+            return null;
+        }
+
+        T computeIfAbsent(long id, LongFunction<T> factory) {
+            T value = get(id);
+            if (value != null) return value;
+            T created = factory.apply(id);
+            T prior = putIfAbsent(id, created);
+            return prior != null ? prior : created;
+        }
+
+        long maxId() { return maxId.get(); }
+
+        // Values in ascending ID order
+        List<T> values() {
+            List<T> values = new ArrayList<>();
+            long max = maxId.get();
+            AtomicReferenceArray<AtomicReferenceArray<T>> dir = segments;
+            for (long s = 0; s <= max >>> SEGMENT_BITS && s < dir.length(); s++) {
+                AtomicReferenceArray<T> segment = dir.get((int) s);
+                if (segment == null) continue;
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    T value = segment.get(i);
+                    if (value != null) values.add(value);
+                }
+            }
+            return values;
+        }
+
+        // Splits by segment, so workers scan disjoint slices without copying the table
+        Stream<T> parallelStream() {
+            long max = maxId.get();
+            AtomicReferenceArray<AtomicReferenceArray<T>> dir = segments;
+            int last = (int) Math.min(max >>> SEGMENT_BITS, dir.length() - 1L);
+            return IntStream.rangeClosed(0, last).parallel()
+                    .mapToObj(dir::get)
+                    .filter(Objects::nonNull)
+                    .flatMap(segment -> IntStream.range(0, SEGMENT_SIZE).mapToObj(segment::get).filter(Objects::nonNull));
+        }
+
+        private AtomicReferenceArray<T> segment(long id) {
+            if (id <= 0) return null;
+            long s = id >>> SEGMENT_BITS;
+            AtomicReferenceArray<AtomicReferenceArray<T>> dir = segments;
+            return s < dir.length() ? dir.get((int) s) : null;
+        }
+
+        private synchronized AtomicReferenceArray<T> createSegment(long id) {
+            if (id <= 0 || (id >>> SEGMENT_BITS) >= Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("ID out of range: " + id);
+            }
+            int s = (int) (id >>> SEGMENT_BITS);
+            AtomicReferenceArray<AtomicReferenceArray<T>> dir = segments;
+            if (s >= dir.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<T>> grown =
+                        new AtomicReferenceArray<>((int) Math.min(Integer.MAX_VALUE, Math.max(s + 1L, dir.length() * 2L)));
+                for (int i = 0; i < dir.length(); i++) grown.set(i, dir.get(i));
+                segments = dir = grown;
+            }
+            AtomicReferenceArray<T> segment = dir.get(s);
+            if (segment == null) {
+                segment = new AtomicReferenceArray<>(SEGMENT_SIZE);
+                dir.set(s, segment);
+            }
+            return segment;
+        }
+    }
+
+    // Called after a change is applied and its journal write has finished or failed, on the thread that made it
+    interface OrderListener {
+        default void orderAdded(Order o) { }
+
+        default void ordersAdded(List<Order> batch) {
+            for (Order o : batch) orderAdded(o);
+        }
+
+        default void quantityChanged(Order o, int oldQuantity) { }
+
+        default void statusChanged(Order o, OrderStatus oldStatus) { }
     }
 
-    enum OrderStatus {
-        PREPARING, DELIVERED, CANCELLED
+    static class OrderManager {
+        static final Comparator<Order> BY_ORDER_ID = Comparator.comparingLong(Order::getOrderNumber);
+
+        private final IdTable<Order> orders = new IdTable<>();
+        // Settled orders from the last snapshot; everything else below holds only the orders since
+        private volatile CompactOrderStore history = CompactOrderStore.EMPTY;
+        private final IdTable<Customer> customers = new IdTable<>();
+        private final IdTable<List<Order>> customerOrders = new IdTable<>();
+        // Repeat customers are found by name and phone, so each person has one record
+        private final Map<String, Customer> customerRegistry = new ConcurrentHashMap<>();
+        // Keyed by every word-start of the normalised name plus the customer number, for prefix scans
+        private final ConcurrentSkipListMap<String, Customer> nameIndex = new ConcurrentSkipListMap<>();
+        private final Map<OrderStatus, Set<Order>> statusBuckets = new EnumMap<>(OrderStatus.class);
+        // Guarded by leaderboard
+        private final Map<Customer, Integer> customerTotals = new HashMap<>();
+        // Sorted by running total, highest first; ties broken by customer ID
+        private final TreeSet<Customer> leaderboard = new TreeSet<>((a, b) -> {
+            int cmp = Integer.compare(customerTotals.get(b), customerTotals.get(a));
+            return cmp != 0 ? cmp : Long.compare(a.getCustomerNumber(), b.getCustomerNumber());
+        });
+        private final AtomicLong orderCounter = new AtomicLong();
+        private final AtomicLong customerCounter = new AtomicLong();
+        private volatile OrderJournal journal;
+        // Changes hold the read side while they log and apply; a snapshot takes the
+        // write side only long enough to roll the journal over to a new segment
+        private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+        private final CopyOnWriteArrayList<OrderListener> listeners = new CopyOnWriteArrayList<>();
+
+        OrderManager() {
+            for (OrderStatus status : OrderStatus.values()) {
+                statusBuckets.put(status, new ConcurrentSkipListSet<>(BY_ORDER_ID));
+            }
+        }
+
+        // IDs are numbers internally; these strings are only built for display
+        static String formatOrderID(long number) {
+            return formatID('O', number);
+        }
+
+        static String formatCustomerID(long number) {
+            return formatID('C', number);
+        }
+
+        private static String formatID(char prefix, long number) {
+            String digits = Long.toString(number);
+            StringBuilder id = new StringBuilder(digits.length() + 3).append(prefix);
+            for (int i = digits.length(); i < 3; i++) id.append('0');
+            return id.append(digits).toString();
+        }
+
+        static long parseOrderID(String text) {
+            return parseID(text, 'O');
+        }
+
+        static long parseCustomerID(String text) {
+            return parseID(text, 'C');
+        }
+
+        // Accepts "O042", "o42" or plain "42"; anything else gives -1
+        private static long parseID(String text, char prefix) {
+            if (text == null) return -1;
+            int start = !text.isEmpty() && Character.toUpperCase(text.charAt(0)) == prefix ? 1 : 0;
+            if (start == text.length()) return -1;
+            long value = 0;
+            for (int i = start; i < text.length(); i++) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) return -1;
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        public long nextOrderNumber() {
+            return orderCounter.incrementAndGet();
+        }
+
+        public long nextCustomerNumber() {
+            return customerCounter.incrementAndGet();
+        }
+
+        public String peekNextOrderID() {
+            return formatOrderID(orderCounter.get() + 1);
+        }
+
+        public String peekNextCustomerID() {
+            return formatCustomerID(customerCounter.get() + 1);
+        }
+
+        /**
+         * Case and extra spaces in the name, and formatting in the phone number, are
+         * ignored. Null when the phone has no digits: a name alone is not enough to
+         * tell two people apart, so such orders are never merged into one customer.
+         */
+        static String customerKey(String name, String phone) {
+            StringBuilder key = new StringBuilder(name.length() + phone.length() + 1);
+            appendNormalizedName(key, name).append('\n');
+            int nameEnd = key.length();
+            for (int i = 0; i < phone.length(); i++) {
+                char ch = phone.charAt(i);
+                if ((ch >= '0' && ch <= '9') || ch == '+') key.append(ch);
+            }
+            return key.length() == nameEnd ? null : key.toString();
+        }
+
+        static String normalizeName(String name) {
+            return appendNormalizedName(new StringBuilder(name.length()), name).toString();
+        }
+
+        // Trimmed, runs of whitespace collapsed to one space, lower case
+        private static StringBuilder appendNormalizedName(StringBuilder out, String name) {
+            int start = out.length();
+            boolean space = false;
+            for (int i = 0; i < name.length(); i++) {
+                char ch = name.charAt(i);
+                if (Character.isWhitespace(ch)) {
+                    space = out.length() > start;
+                } else {
+                    if (space) out.append(' ');
+                    space = false;
+                    out.append(Character.toLowerCase(ch));
+                }
+            }
+            return out;
+        }
+
+        // "John Smith" can be found from "jo", "john s" or "smi"
+        private void indexName(Customer c) {
+            for (String key : nameKeys(c)) nameIndex.put(key, c);
+        }
+
+        // The customer's nameIndex keys, in word order
+        static List<String> nameKeys(Customer c) {
+            String name = normalizeName(c.getName());
+            List<String> keys = new ArrayList<>();
+            for (int start = 0; start < name.length(); start = name.indexOf(' ', start) + 1) {
+                keys.add(name.substring(start) + '\0' + c.getCustomerNumber());
+                if (name.indexOf(' ', start) < 0) break;
+            }
+            return keys;
+        }
+
+        public void addOrderListener(OrderListener listener) {
+            listeners.addIfAbsent(listener);
+        }
+
+        public void removeOrderListener(OrderListener listener) {
+            listeners.remove(listener);
+        }
+
+        public Customer findCustomer(String name, String phone) {
+            String key = customerKey(name, phone);
+            if (key == null) return null;
+            Customer c = customerRegistry.get(key);
+            return c != null ? c : history.findCustomer(key);
+        }
+
+        public Customer registerCustomer(String name, String phone) {
+            return registerCustomer(customerKey(name, phone), name, phone);
+        }
+
+        private Customer registerCustomer(String key, String name, String phone) {
+            if (key == null) return newCustomer(name, phone);
+            // Snapshot customers stay in the history store, which never changes once loaded
+            Customer known = history.findCustomer(key);
+            if (known != null) return known;
+            return customerRegistry.computeIfAbsent(key, k -> newCustomer(name, phone));
+        }
+
+        private Customer newCustomer(String name, String phone) {
+            Customer c = new Customer(nextCustomerNumber(), name.trim(), phone.trim());
+            customers.putIfAbsent(c.getCustomerNumber(), c);
+            indexName(c);
+            return c;
+        }
+
+        public Order addOrder(String customerName, int qty) {
+            return addOrder(customerName, "", qty);
+        }
+
+        public Order addOrder(String customerName, String phone, int qty) {
+            Customer c = registerCustomer(customerName, phone);
+
+            Order o = new Order(nextOrderNumber(), c, qty, OrderStatus.PREPARING);
+            OrderJournal j;
+            long ticket = 0;
+            journalLock.readLock().lock();
+            try {
+                j = journal;
+                // Logged before it becomes visible, so no update can be journaled ahead of it
+                if (j != null) ticket = j.logAdd(o);
+                index(o);
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            try {
+                if (j != null) j.awaitDurable(ticket);
+            } finally {
+                // Applied whether or not the journal kept it, so listeners hear of it either way
+                for (OrderListener l : listeners) l.orderAdded(o);
+            }
+            return o;
+        }
+
+        /**
+         * Adds a batch of orders under one contiguous block of order numbers. The batch
+         * is journaled with a single durability wait, and each index is touched once
+         * for the whole batch instead of once per order.
+         */
+        public List<Order> addOrders(List<NewOrder> batch) {
+            List<Order> added = new ArrayList<>(batch.size());
+            if (batch.isEmpty()) return added;
+            long first = orderCounter.getAndAdd(batch.size()) + 1;
+            // Rows are grouped by name and phone as written, so each repeat customer is registered once
+            Map<String, Map<String, Customer>> seen = new HashMap<>();
+            for (NewOrder row : batch) {
+                Map<String, Customer> byPhone = seen.computeIfAbsent(row.customerName, k -> new HashMap<>());
+                Customer c = byPhone.get(row.phone);
+                if (c == null) {
+                    String key = customerKey(row.customerName, row.phone);
+                    c = registerCustomer(key, row.customerName, row.phone);
+                    // Without a phone every row is a different customer, so only keyed ones are reused
+                    if (key != null) byPhone.put(row.phone, c);
+                }
+                added.add(new Order(first + added.size(), c, row.qty, OrderStatus.PREPARING));
+            }
+            OrderJournal j;
+            long ticket = 0;
+            journalLock.readLock().lock();
+            try {
+                j = journal;
+                if (j != null) ticket = j.logAdds(added);
+                indexBatch(added);
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            try {
+                if (j != null) j.awaitDurable(ticket);
+            } finally {
+                // Applied whether or not the journal kept it, so listeners hear of it either way
+                for (OrderListener l : listeners) l.ordersAdded(added);
+            }
+            return added;
+        }
+
+        // One order as read from an import, before it has been given IDs
+        static final class NewOrder {
+            final String customerName;
+            final String phone;
+            final int qty;
+
+            NewOrder(String customerName, String phone, int qty) {
+                this.customerName = customerName;
+                this.phone = phone;
+                this.qty = qty;
+            }
+        }
+
+        private void indexBatch(List<Order> batch) {
+            Map<Customer, List<Order>> byCustomer = groupByCustomer(batch);
+            synchronized (leaderboard) {
+                for (Map.Entry<Customer, List<Order>> e : byCustomer.entrySet()) {
+                    int total = 0;
+                    for (Order o : e.getValue()) total += o.getTotal();
+                    adjustCustomerTotal(e.getKey(), total);
+                }
+            }
+            indexPreparing(batch, byCustomer);
+        }
+
+        private static Map<Customer, List<Order>> groupByCustomer(List<Order> batch) {
+            Map<Customer, List<Order>> byCustomer = new HashMap<>();
+            for (Order o : batch) {
+                byCustomer.computeIfAbsent(o.getCustomer(), k -> new ArrayList<>()).add(o);
+            }
+            return byCustomer;
+        }
+
+        // Every index but the leaderboard, touched once per customer and once for the bucket
+        private void indexPreparing(List<Order> batch, Map<Customer, List<Order>> byCustomer) {
+            statusBuckets.get(OrderStatus.PREPARING).addAll(batch);
+            for (Map.Entry<Customer, List<Order>> e : byCustomer.entrySet()) {
+                addInOrder(customerOrders.computeIfAbsent(e.getKey().getCustomerNumber(),
+                        k -> Collections.synchronizedList(new ArrayList<>())), e.getValue());
+            }
+            // Published last: updates look orders up here, so none can see one half-indexed
+            for (Order o : batch) orders.putIfAbsent(o.getOrderNumber(), o);
+        }
+
+        private void index(Order o) {
+            Customer c = o.getCustomer();
+            // Updates lock the order too, so none can see it half-indexed
+            synchronized (o) {
+                orders.putIfAbsent(o.getOrderNumber(), o);
+                addInOrder(customerOrders.computeIfAbsent(c.getCustomerNumber(),
+                        k -> Collections.synchronizedList(new ArrayList<>())), List.of(o));
+                statusBuckets.get(o.getStatus()).add(o);
+                adjustCustomerTotal(c, o.getTotal());
+            }
+        }
+
+        /**
+         * Tills index their orders in whatever order they get the locks, so one can
+         * arrive after a higher-numbered order for the same customer. Each is put in
+         * order-number position, which keeps the list ascending for merge and the
+         * first-N reads; the scan from the end is usually no steps at all.
+         */
+        private static void addInOrder(List<Order> list, List<Order> ascending) {
+            synchronized (list) {
+                for (Order o : ascending) {
+                    int at = list.size();
+                    while (at > 0 && list.get(at - 1).getOrderNumber() > o.getOrderNumber()) at--;
+                    list.add(at, o);
+                }
+            }
+        }
+
+        // Re-creates a journaled order with its original IDs; replaying it twice is harmless
+        void restoreOrder(long orderNumber, long customerNumber, String customerName, String phone,
+                          int qty, OrderStatus status) {
+            if (searchOrder(orderNumber) != null) return;
+            Customer c = restoreCustomer(customerNumber, customerName, phone);
+            index(new Order(orderNumber, c, qty, status));
+            restoreCounters(orderNumber, customerNumber);
+        }
+
+        // Re-creates a customer with its original number, or returns the one already known
+        Customer restoreCustomer(long customerNumber, String name, String phone) {
+            Customer c = customers.get(customerNumber);
+            if (c != null) return c;
+            c = new Customer(customerNumber, name, phone);
+            Customer prior = customers.putIfAbsent(customerNumber, c);
+            if (prior != null) return prior;
+            String key = customerKey(name, phone);
+            if (key != null) customerRegistry.putIfAbsent(key, c);
+            indexName(c);
+            return c;
+        }
+
+        /**
+         * Installs a loaded snapshot into a manager that holds no orders yet. Settled
+         * orders stay in the history store and the preparing ones are indexed as one
+         * batch. The store's customers are put in the ID table only; the registry and
+         * name index look them up in the store. totals is each store customer's total
+         * over both, by row, and byTotal the rows in leaderboard order.
+         */
+        void restoreSnapshot(CompactOrderStore store, List<Order> preparing, int[] totals, int[] byTotal) {
+            Customer[] known = store.customers();
+            for (Customer c : known) customers.putIfAbsent(c.getCustomerNumber(), c);
+            synchronized (leaderboard) {
+                // Already in order, so each insert only walks the right-hand edge of the tree
+                for (int row : byTotal) {
+                    customerTotals.put(known[row], totals[row]);
+                    leaderboard.add(known[row]);
+                }
+            }
+            history = store;
+            indexPreparing(preparing, groupByCustomer(preparing));
+        }
+
+        void restoreCounters(long orders, long customers) {
+            orderCounter.accumulateAndGet(orders, Math::max);
+            customerCounter.accumulateAndGet(customers, Math::max);
+        }
+
+        CompactOrderStore getHistory() { return history; }
+
+        // The orders held as objects, outside the history store, in ascending ID order
+        List<Order> getLiveOrders() { return orders.values(); }
+
+        long getOrderCounter() { return orderCounter.get(); }
+        long getCustomerCounter() { return customerCounter.get(); }
+
+        void attachJournal(OrderJournal journal) {
+            this.journal = journal;
+        }
+
+        // Every change logged before the returned segment is already applied in memory
+        long rollJournal() {
+            journalLock.writeLock().lock();
+            try {
+                OrderJournal j = journal;
+                if (j == null) throw new IllegalStateException("No journal attached");
+                return j.rotate();
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+        }
+
+        void close() {
+            OrderJournal j = journal;
+            journal = null;
+            if (j != null) j.close();
+        }
+
+        // IDs are matched case-insensitively, so "o001" finds "O001"
+        public Order searchOrder(String orderID) {
+            return searchOrder(parseOrderID(orderID));
+        }
+
+        public Order searchOrder(long orderNumber) {
+            Order o = orders.get(orderNumber);
+            return o != null ? o : history.find(orderNumber);
+        }
+
+        public List<Order> searchCustomerOrders(String customerID) {
+            return searchCustomerOrders(parseCustomerID(customerID));
+        }
+
+        public List<Order> searchCustomerOrders(long customerNumber) {
+            return customerOrders(customerNumber, Integer.MAX_VALUE);
+        }
+
+        // The customer's first limit orders; only those are copied out of either store
+        private List<Order> customerOrders(long customerNumber, int limit) {
+            List<Order> settled = history.ordersOf(customerNumber, limit);
+            List<Order> list = customerOrders.get(customerNumber);
+            if (list == null) return settled;
+            List<Order> live;
+            synchronized (list) {
+                live = new ArrayList<>(Math.min(list.size(), limit));
+                for (Order o : list) {
+                    if (live.size() == limit) break;
+                    live.add(o);
+                }
+            }
+            return merge(settled, live, limit);
+        }
+
+        // Both lists in ascending order-ID order; either may be returned as is
+        private static List<Order> merge(List<Order> a, List<Order> b) {
+            return merge(a, b, Integer.MAX_VALUE);
+        }
+
+        // The first limit orders of the two, merged
+        private static List<Order> merge(List<Order> a, List<Order> b, int limit) {
+            if (a.isEmpty()) return b;
+            if (b.isEmpty()) return a;
+            List<Order> merged = new ArrayList<>(Math.min(a.size() + b.size(), limit));
+            int i = 0;
+            int j = 0;
+            while (merged.size() < limit && (i < a.size() || j < b.size())) {
+                boolean fromA = j == b.size() || (i < a.size() && a.get(i).getOrderNumber() <= b.get(j).getOrderNumber());
+                merged.add(fromA ? a.get(i++) : b.get(j++));
+            }
+            return merged;
+        }
+
+        /**
+         * Type-ahead lookup: an order ID prefix such as "O12" or "12" returns orders
+         * whose ID starts with it, and anything else is taken as the start of a word
+         * in a customer's name. At most limit orders, found without a scan.
+         */
+        public List<Order> searchOrdersByPrefix(String text, int limit) {
+            String digits = idDigits(text, 'O');
+            if (digits != null) {
+                return byIdPrefix(this::searchOrder, Math.max(orders.maxId(), history.maxOrderNumber()), digits, limit);
+            }
+            List<Order> found = new ArrayList<>();
+            for (Customer c : customersByName(text, limit)) {
+                if (found.size() == limit) break;
+                found.addAll(customerOrders(c.getCustomerNumber(), limit - found.size()));
+            }
+            return found;
+        }
+
+        // Same as searchOrdersByPrefix, but over customer IDs and names
+        public List<Customer> searchCustomersByPrefix(String text, int limit) {
+            String digits = idDigits(text, 'C');
+            return digits != null ? byIdPrefix(customers::get, customers.maxId(), digits, limit) : customersByName(text, limit);
+        }
+
+        // Snapshot customers come from the history store's sorted keys and later ones from nameIndex, merged in key order
+        private List<Customer> customersByName(String text, int limit) {
+            String prefix = normalizeName(text);
+            Set<Customer> found = new LinkedHashSet<>();
+            if (prefix.isEmpty()) return new ArrayList<>(found);
+            String end = prefix + Character.MAX_VALUE;
+            CompactOrderStore settled = history;
+            int i = settled.nameKeyAtOrAfter(prefix);
+            int to = settled.nameKeyAtOrAfter(end);
+            Iterator<Map.Entry<String, Customer>> later = nameIndex.subMap(prefix, end).entrySet().iterator();
+            Map.Entry<String, Customer> next = later.hasNext() ? later.next() : null;
+            while (found.size() < limit && (i < to || next != null)) {
+                if (next == null || (i < to && settled.nameKey(i).compareTo(next.getKey()) < 0)) {
+                    found.add(settled.byName(i++));
+                } else {
+                    found.add(next.getValue());
+                    next = later.hasNext() ? later.next() : null;
+                }
+            }
+            return new ArrayList<>(found);
+        }
+
+        // The digits of an ID prefix, or null if the text is not one
+        private static String idDigits(String text, char prefix) {
+            String t = text.trim();
+            int start = !t.isEmpty() && Character.toUpperCase(t.charAt(0)) == prefix ? 1 : 0;
+            if (start == t.length() || t.length() - start > 18) return null;
+            for (int i = start; i < t.length(); i++) {
+                if (t.charAt(i) < '0' || t.charAt(i) > '9') return null;
+            }
+            return t.substring(start);
+        }
+
+        /**
+         * IDs are dense, so the IDs whose display form starts with some digits are a
+         * few numeric ranges, one per display length: "12" is 120-129, 1200-1299 and
+         * so on. Each range is read straight from the table.
+         */
+        private static <T> List<T> byIdPrefix(LongFunction<T> lookup, long max, String digits, int limit) {
+            List<T> found = new ArrayList<>();
+            long prefix = Long.parseLong(digits);
+            for (int length = Math.max(digits.length(), 3); length <= 18 && found.size() < limit; length++) {
+                long scale = pow10(length - digits.length());
+                // Only IDs shown with exactly this many digits; short ones are zero-padded to three
+                long from = Math.max(prefix * scale, length == 3 ? 1 : pow10(length - 1));
+                long to = Math.min((prefix + 1) * scale, pow10(length));
+                if (from > max) break;
+                for (long id = from; id < to && id <= max && found.size() < limit; id++) {
+                    T value = lookup.apply(id);
+                    if (value != null) found.add(value);
+                }
+            }
+            return found;
+        }
+
+        private static long pow10(int exponent) {
+            long value = 1;
+            for (int i = 0; i < exponent; i++) value *= 10;
+            return value;
+        }
+
+        public List<Order> viewOrdersByStatus(OrderStatus status) {
+            return merge(history.withStatus(status), new ArrayList<>(statusBuckets.get(status)));
+        }
+
+        public boolean updateOrderQuantity(String orderID, int newQty) {
+            return updateOrderQuantity(parseOrderID(orderID), newQty);
+        }
+
+        public boolean updateOrderQuantity(long orderNumber, int newQty) {
+            Order o = searchOrder(orderNumber);
+            if (o == null) return false;
+            OrderJournal j;
+            long ticket = 0;
+            int oldQty;
+            journalLock.readLock().lock();
+            try {
+                j = journal;
+                synchronized (o) {
+                    if (o.getStatus() != OrderStatus.PREPARING) return false;
+                    int oldTotal = o.getTotal();
+                    oldQty = o.getQuantity();
+                    o.setQuantity(newQty);
+                    adjustCustomerTotal(o.getCustomer(), o.getTotal() - oldTotal);
+                    if (j != null) ticket = j.logQuantity(o);
+                }
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            try {
+                if (j != null) j.awaitDurable(ticket);
+            } finally {
+                // Applied whether or not the journal kept it, so listeners hear of it either way
+                for (OrderListener l : listeners) l.quantityChanged(o, oldQty);
+            }
+            return true;
+        }
+
+        public boolean updateOrderStatus(String orderID, OrderStatus newStatus) {
+            return updateOrderStatus(parseOrderID(orderID), newStatus);
+        }
+
+        public boolean updateOrderStatus(long orderNumber, OrderStatus newStatus) {
+            Order o = searchOrder(orderNumber);
+            if (o == null) return false;
+            OrderJournal j;
+            long ticket = 0;
+            journalLock.readLock().lock();
+            try {
+                j = journal;
+                // Only one till may move an order out of PREPARING
+                synchronized (o) {
+                    if (o.getStatus() != OrderStatus.PREPARING) return false;
+                    if (newStatus != OrderStatus.PREPARING) {
+                        statusBuckets.get(OrderStatus.PREPARING).remove(o);
+                        statusBuckets.get(newStatus).add(o);
+                    }
+                    o.setStatus(newStatus);
+                    if (j != null) ticket = j.logStatus(o);
+                }
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            try {
+                if (j != null) j.awaitDurable(ticket);
+            } finally {
+                // Applied whether or not the journal kept it, so listeners hear of it either way
+                for (OrderListener l : listeners) l.statusChanged(o, OrderStatus.PREPARING);
+            }
+            return true;
+        }
+
+        private void adjustCustomerTotal(Customer c, int delta) {
+            synchronized (leaderboard) {
+                Integer current = customerTotals.get(c);
+                if (current != null) {
+                    // Must leave the tree before its sort key changes
+                    leaderboard.remove(c);
+                }
+                customerTotals.put(c, (current == null ? 0 : current) + delta);
+                leaderboard.add(c);
+            }
+        }
+
+        public Map<Customer, Integer> getCustomerTotals() {
+            synchronized (leaderboard) {
+                return new HashMap<>(customerTotals);
+            }
+        }
+
+        public List<Map.Entry<Customer, Integer>> getCustomersByTotalDesc() {
+            return getTopCustomers(Integer.MAX_VALUE);
+        }
+
+        public List<Map.Entry<Customer, Integer>> getTopCustomers(int n) {
+            synchronized (leaderboard) {
+                List<Map.Entry<Customer, Integer>> list = new ArrayList<>(Math.min(n, leaderboard.size()));
+                for (Customer c : leaderboard) {
+                    if (list.size() >= n) break;
+                    list.add(new AbstractMap.SimpleImmutableEntry<>(c, customerTotals.get(c)));
+                }
+                return list;
+            }
+        }
+
+        // In ascending order-ID order
+        public List<Order> getAllOrders() {
+            return merge(history.all(), orders.values());
+        }
+
+        public SalesReport buildSalesReport(int topCustomers) {
+            return SalesReport.build(Stream.concat(history.parallelStream(), orders.parallelStream()), topCustomers);
+        }
+    }
+
+    /**
+     * Settled (delivered or cancelled) orders loaded from a snapshot, kept as rows of
+     * primitive columns instead of Order objects: order number, customer row,
+     * quantity and status take 17 bytes a row, plus 8 in the per-customer and
+     * per-status indexes. The price is always Order.UNIT_PRICE and is not stored.
+     * The columns and indexes are views of the mapped snapshot file, written there
+     * ready to use, so loading copies none of them and pages are read on demand.
+     * Settled orders never change, so the store is immutable and read without locks;
+     * Order objects are built, detached, only when a caller asks for one.
+     *
+     * The snapshot's customers come with it, along with their registry keys and
+     * name index keys in sorted order, so they are found by binary search here
+     * instead of being added to the manager's maps one by one at startup. The keys
+     * themselves are not stored: each probe rebuilds the one it compares.
+     */
+    static final class CompactOrderStore {
+        private static final OrderStatus[] STATUSES = OrderStatus.values();
+        static final CompactOrderStore EMPTY = new CompactOrderStore(new Customer[0], IntBuffer.allocate(0),
+                IntBuffer.allocate(0), IntBuffer.allocate(0), LongBuffer.allocate(0), IntBuffer.allocate(0),
+                IntBuffer.allocate(0), ByteBuffer.allocate(0), IntBuffer.allocate(1), IntBuffer.allocate(0),
+                IntBuffer.allocate(STATUSES.length + 1), IntBuffer.allocate(0));
+
+        // Ascending by customer number
+        private final Customer[] customers;
+        // The rows of customers with a customerKey, sorted by it
+        private final IntBuffer byRegistryKey;
+        // Every nameIndex key of the customers, sorted, as the row of the customer it
+        // belongs to and which of their nameKeys it is
+        private final IntBuffer nameKeyOwners;
+        private final IntBuffer nameKeyOrdinals;
+        // Ascending
+        private final LongBuffer orderNumbers;
+        private final IntBuffer customerRows;
+        private final IntBuffer quantities;
+        private final ByteBuffer statuses;
+        // Customer row c's orders are byCustomer[customerStarts[c] until customerStarts[c + 1]], ascending
+        private final IntBuffer customerStarts;
+        private final IntBuffer byCustomer;
+        // Likewise by status ordinal
+        private final IntBuffer statusStarts;
+        private final IntBuffer byStatus;
+
+        CompactOrderStore(Customer[] customers, IntBuffer byRegistryKey, IntBuffer nameKeyOwners,
+                          IntBuffer nameKeyOrdinals, LongBuffer orderNumbers, IntBuffer customerRows,
+                          IntBuffer quantities, ByteBuffer statuses, IntBuffer customerStarts, IntBuffer byCustomer,
+                          IntBuffer statusStarts, IntBuffer byStatus) {
+            this.customers = customers;
+            this.byRegistryKey = byRegistryKey;
+            this.nameKeyOwners = nameKeyOwners;
+            this.nameKeyOrdinals = nameKeyOrdinals;
+            this.orderNumbers = orderNumbers;
+            this.customerRows = customerRows;
+            this.quantities = quantities;
+            this.statuses = statuses;
+            this.customerStarts = customerStarts;
+            this.byCustomer = byCustomer;
+            this.statusStarts = statusStarts;
+            this.byStatus = byStatus;
+        }
+
+        int size() { return orderNumbers.limit(); }
+
+        long maxOrderNumber() {
+            return size() == 0 ? 0 : orderNumbers.get(size() - 1);
+        }
+
+        Order find(long orderNumber) {
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = orderNumbers.get(mid);
+                if (value < orderNumber) low = mid + 1;
+                else if (value > orderNumber) high = mid - 1;
+                else return get(mid);
+            }
+            return null;
+        }
+
+        Order get(int row) {
+            return new Order(orderNumbers.get(row), customers[customerRows.get(row)], quantities.get(row),
+                    STATUSES[statuses.get(row)]);
+        }
+
+        // Column reads for the snapshot writer, which copies rows without building Orders
+        long orderNumber(int row) { return orderNumbers.get(row); }
+        int customerRow(int row) { return customerRows.get(row); }
+        int quantity(int row) { return quantities.get(row); }
+        byte status(int row) { return statuses.get(row); }
+        Customer[] customers() { return customers; }
+
+        // The customer's row in customers sorted by number, or a negative number if absent
+        static int rowOf(Customer[] customers, long customerNumber) {
+            int low = 0;
+            int high = customers.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = customers[mid].getCustomerNumber();
+                if (value < customerNumber) low = mid + 1;
+                else if (value > customerNumber) high = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+
+        // At most limit of the customer's orders, oldest first
+        List<Order> ordersOf(long customerNumber, int limit) {
+            int c = rowOf(customers, customerNumber);
+            if (c < 0) return new ArrayList<>();
+            return rows(byCustomer, customerStarts.get(c), customerStarts.get(c + 1), limit);
+        }
+
+        // Empty for PREPARING, which no settled order can be
+        List<Order> withStatus(OrderStatus status) {
+            int s = status.ordinal();
+            return rows(byStatus, statusStarts.get(s), statusStarts.get(s + 1), Integer.MAX_VALUE);
+        }
+
+        private List<Order> rows(IntBuffer index, int from, int to, int limit) {
+            List<Order> found = new ArrayList<>(Math.min(to - from, limit));
+            for (int i = from; i < to && found.size() < limit; i++) found.add(get(index.get(i)));
+            return found;
+        }
+
+        List<Order> all() {
+            List<Order> all = new ArrayList<>(size());
+            for (int row = 0; row < size(); row++) all.add(get(row));
+            return all;
+        }
+
+        Stream<Order> parallelStream() {
+            return IntStream.range(0, size()).parallel().mapToObj(this::get);
+        }
+
+        // The snapshot customer with this customerKey, or null
+        Customer findCustomer(String key) {
+            int i = atOrAfter(0, byRegistryKey.limit(), this::registryKey, key);
+            return i < byRegistryKey.limit() && registryKey(i).equals(key) ? customers[byRegistryKey.get(i)] : null;
+        }
+
+        int registryKeyCount() { return byRegistryKey.limit(); }
+        int registryKeyRow(int i) { return byRegistryKey.get(i); }
+
+        String registryKey(int i) {
+            Customer c = customers[byRegistryKey.get(i)];
+            return OrderManager.customerKey(c.getName(), c.getPhone());
+        }
+
+        // Position of the first name key at or after key
+        int nameKeyAtOrAfter(String key) {
+            return atOrAfter(0, nameKeyOwners.limit(), this::nameKey, key);
+        }
+
+        int nameKeyCount() { return nameKeyOwners.limit(); }
+        int nameKeyOwner(int i) { return nameKeyOwners.get(i); }
+        int nameKeyOrdinal(int i) { return nameKeyOrdinals.get(i); }
+        Customer byName(int i) { return customers[nameKeyOwners.get(i)]; }
+
+        String nameKey(int i) {
+            return OrderManager.nameKeys(byName(i)).get(nameKeyOrdinals.get(i));
+        }
+
+        // The first position from on whose key is not below key, given keys sorted up to count
+        static int atOrAfter(int from, int count, IntFunction<String> keyAt, String key) {
+            int low = from;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keyAt.apply(mid).compareTo(key) < 0) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Append-only log of order changes, split into numbered segment files. Writers
+     * enqueue a record and then wait for it to be durable; a single writer thread
+     * flushes everything queued since the last flush with one write and one fsync,
+     * so concurrent tills share the cost. Each record is framed as length, CRC32,
+     * payload; a torn tail is dropped on replay.
+     */
+    static class OrderJournal {
+        private static final byte ADD = 1;
+        private static final byte QUANTITY = 2;
+        private static final byte STATUS = 3;
+        // Queued in place of a record to switch the writer to the next segment
+        private static final ByteBuffer ROTATE = ByteBuffer.allocate(0);
+
+        private final Path dir;
+        private final Thread writer;
+        // Owned by the writer thread once it has started
+        private FileChannel channel;
+        private long writerSegment;
+        // Newest segment handed out by rotate(), guarded by this
+        private long segment;
+        private List<ByteBuffer> pending = new ArrayList<>();
+        private long enqueued;
+        private long durable;
+        // Set once a write fails; the writer stops there and nothing is queued after it
+        private IOException failure;
+        private boolean closed;
+
+        private OrderJournal(Path dir, long segment) throws IOException {
+            this.dir = dir;
+            this.segment = segment;
+            this.writerSegment = segment;
+            this.channel = openSegment(dir, segment);
+            this.writer = new Thread(this::writeLoop, "order-journal");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        static Path segmentFile(Path dir, long segment) {
+            return dir.resolve(String.format("journal-%06d.log", segment));
+        }
+
+        private static FileChannel openSegment(Path dir, long segment) throws IOException {
+            return FileChannel.open(segmentFile(dir, segment), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        static List<Long> listSegments(Path dir) throws IOException {
+            List<Long> segments = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.log")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.add(Long.parseLong(name.substring(8, name.length() - 4)));
+                }
+            }
+            Collections.sort(segments);
+            return segments;
+        }
+
+        static void deleteSegmentsBefore(Path dir, long segment) throws IOException {
+            for (long s : listSegments(dir)) {
+                if (s < segment) Files.deleteIfExists(segmentFile(dir, s));
+            }
+        }
+
+        /**
+         * Loads the newest snapshot, replays the segments written after it and
+         * attaches a journal that appends to a fresh segment.
+         */
+        static OrderJournal open(Path dir, OrderManager manager) throws IOException {
+            Files.createDirectories(dir);
+            long first = OrderSnapshot.loadLatest(dir, manager);
+            long next = first;
+            for (long s : listSegments(dir)) {
+                if (s < first) continue;
+                try (FileChannel in = FileChannel.open(segmentFile(dir, s), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    replay(in, manager);
+                }
+                next = s + 1;
+            }
+            OrderJournal journal = new OrderJournal(dir, next);
+            manager.attachJournal(journal);
+            return journal;
+        }
+
+        private static void replay(FileChannel channel, OrderManager manager) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel), 1 << 16));
+            long valid = 0;
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+            while (valid + 8 <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || valid + 8 + length > size) break;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), manager);
+                valid += 8 + length;
+            }
+            // Cut off a record torn by a crash, so the segment ends on a whole record
+            if (valid < size) channel.truncate(valid);
+        }
+
+        // Records carry absolute values, so replaying one already reflected in a snapshot is harmless
+        private static void apply(DataInputStream record, OrderManager manager) throws IOException {
+            byte type = record.readByte();
+            long orderNumber = record.readLong();
+            switch (type) {
+                case ADD:
+                    long customerNumber = record.readLong();
+                    String name = record.readUTF();
+                    String phone = record.readUTF();
+                    manager.restoreOrder(orderNumber, customerNumber, name, phone, record.readInt(), OrderStatus.PREPARING);
+                    break;
+                case QUANTITY:
+                    manager.updateOrderQuantity(orderNumber, record.readInt());
+                    break;
+                case STATUS:
+                    manager.updateOrderStatus(orderNumber, OrderStatus.values()[record.readByte()]);
+                    break;
+                default:
+                    throw new IOException("Unknown journal record type " + type);
+            }
+        }
+
+        long logAdd(Order o) {
+            return enqueue(addFrame(o));
+        }
+
+        // Queued together, so the whole batch lands in the same flush
+        long logAdds(List<Order> batch) {
+            List<ByteBuffer> frames = new ArrayList<>(batch.size());
+            for (Order o : batch) frames.add(addFrame(o));
+            return enqueueAll(frames);
+        }
+
+        private static ByteBuffer addFrame(Order o) {
+            return frame(ADD, o.getOrderNumber(), out -> {
+                out.writeLong(o.getCustomer().getCustomerNumber());
+                out.writeUTF(o.getCustomer().getName());
+                out.writeUTF(o.getCustomer().getPhone());
+                out.writeInt(o.getQuantity());
+            });
+        }
+
+        long logQuantity(Order o) {
+            return enqueue(frame(QUANTITY, o.getOrderNumber(), out -> out.writeInt(o.getQuantity())));
+        }
+
+        long logStatus(Order o) {
+            return enqueue(frame(STATUS, o.getOrderNumber(), out -> out.writeByte(o.getStatus().ordinal())));
+        }
+
+        private interface RecordBody {
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        private static ByteBuffer frame(byte type, long orderNumber, RecordBody body) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0);
+                out.writeInt(0);
+                out.writeByte(type);
+                out.writeLong(orderNumber);
+                body.write(out);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32 crc = new CRC32();
+            crc.update(frame.array(), 8, frame.limit() - 8);
+            frame.putInt(0, frame.limit() - 8);
+            frame.putInt(4, (int) crc.getValue());
+            return frame;
+        }
+
+        private synchronized long enqueue(ByteBuffer frame) {
+            if (closed) throw new IllegalStateException("Journal is closed");
+            // The writer has stopped, so this could never be written; the ticket fails at once
+            if (failure != null) return enqueued + 1;
+            pending.add(frame);
+            notifyAll();
+            return ++enqueued;
+        }
+
+        private synchronized long enqueueAll(List<ByteBuffer> frames) {
+            if (closed) throw new IllegalStateException("Journal is closed");
+            if (failure != null) return enqueued + 1;
+            pending.addAll(frames);
+            notifyAll();
+            enqueued += frames.size();
+            return enqueued;
+        }
+
+        // Records queued after this call go to the returned segment
+        synchronized long rotate() {
+            enqueue(ROTATE);
+            return ++segment;
+        }
+
+        synchronized void awaitDurable(long ticket) {
+            boolean interrupted = false;
+            while (durable < ticket && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            // By now the change is applied in memory; only keeping it across a restart has failed
+            if (durable < ticket) {
+                throw new UncheckedIOException(ticket > enqueued ? "Journal stopped after an earlier write failure"
+                        : "Journal write failed", failure);
+            }
+        }
+
+        private void writeLoop() {
+            while (true) {
+                List<ByteBuffer> batch;
+                long batchEnd;
+                synchronized (this) {
+                    while (pending.isEmpty() && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    }
+                    if (pending.isEmpty()) return;
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    batchEnd = enqueued;
+                }
+                IOException error = null;
+                try {
+                    writeBatch(batch);
+                } catch (IOException ex) {
+                    error = ex;
+                }
+                synchronized (this) {
+                    if (error != null) {
+                        failure = error;
+                        // Queued behind the failed batch; the writer is stopping, so drop them
+                        pending.clear();
+                    } else {
+                        durable = batchEnd;
+                    }
+                    notifyAll();
+                    if (error != null) return;
+                }
+            }
+        }
+
+        private void writeBatch(List<ByteBuffer> batch) throws IOException {
+            int from = 0;
+            for (int i = 0; i <= batch.size(); i++) {
+                if (i < batch.size() && batch.get(i) != ROTATE) continue;
+                ByteBuffer[] buffers = batch.subList(from, i).toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer b : buffers) remaining += b.remaining();
+                while (remaining > 0) remaining -= channel.write(buffers);
+                channel.force(false);
+                if (i < batch.size()) {
+                    channel.close();
+                    channel = openSegment(dir, ++writerSegment);
+                }
+                from = i + 1;
+            }
+        }
+
+        // Flushes whatever is queued and stops the writer
+        void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                notifyAll();
+            }
+            try {
+                writer.join();
+                channel.close();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // Every acknowledged record has already been forced to disk
+            }
+        }
+    }
+
+    /**
+     * Compact columnar image of an OrderManager. Every column is fixed width, and
+     * the settled orders are laid out the way CompactOrderStore reads them, so
+     * loading maps the file and serves them from it without copying:
+     *
+     *   header     magic, version, firstSegment, orderCounter, customerCounter (longs),
+     *              customerCount, registryKeyCount, nameKeyCount, settledCount, preparingCount
+     *   customers  id[customerCount] (long, ascending), nameEnd[customerCount],
+     *              phoneEnd[customerCount], name bytes, phone bytes (UTF-8),
+     *              total[customerCount], byTotal[customerCount] (rows in leaderboard order),
+     *              byRegistryKey[registryKeyCount] (rows sorted by customerKey),
+     *              nameKeyOwner[nameKeyCount], nameKeyOrdinal[nameKeyCount] (the name index
+     *              keys in sorted order, as the customer row and which of its keys)
+     *   settled    id[settledCount] (long, ascending), customerRow[settledCount],
+     *              quantity[settledCount], status[settledCount] (one byte each),
+     *              customerStart[customerCount + 1], byCustomer[settledCount],
+     *              statusStart[statuses + 1], byStatus[settledCount]
+     *   preparing  id[preparingCount] (long, ascending), customerRow[preparingCount],
+     *              quantity[preparingCount]
+     *
+     * Snapshots are named after the first journal segment they do not cover, and
+     * are written to a temporary file that is moved into place once complete.
+     */
+    static class OrderSnapshot {
+        private static final int MAGIC = 0x42534E50;
+        private static final int VERSION = 4;
+        private static final int HEADER_BYTES = 4 + 4 + 8 * 3 + 4 * 5;
+        private static final int STATUS_COUNT = OrderStatus.values().length;
+
+        static Path snapshotFile(Path dir, long firstSegment) {
+            return dir.resolve(String.format("snapshot-%06d.bin", firstSegment));
+        }
+
+        static void schedule(Path dir, OrderManager manager, long intervalMinutes) {
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "order-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.scheduleWithFixedDelay(() -> {
+                try {
+                    take(dir, manager);
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Order snapshot failed: " + ex);
+                }
+            }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+
+        /**
+         * Rolls the journal, then copies the manager while tills keep taking orders.
+         * Changes that race with the copy are also in the new segment and are
+         * replayed on top of the snapshot. The indexes the loader would otherwise
+         * build are worked out here, off the startup path.
+         */
+        static void take(Path dir, OrderManager manager) throws IOException {
+            long firstSegment = manager.rollJournal();
+            // Settled history rows are copied column by column; only live orders are objects
+            CompactOrderStore history = manager.getHistory();
+            List<Order> live = manager.getLiveOrders();
+            int liveCount = live.size();
+            int[] liveQuantities = new int[liveCount];
+            byte[] liveStatuses = new byte[liveCount];
+            for (int i = 0; i < liveCount; i++) {
+                Order o = live.get(i);
+                synchronized (o) {
+                    liveQuantities[i] = o.getQuantity();
+                    liveStatuses[i] = (byte) o.getStatus().ordinal();
+                }
+            }
+            Customer[] customers = customersOf(history, live);
+            int[] historyCustomerRows = new int[history.customers().length];
+            for (int c = 0; c < historyCustomerRows.length; c++) {
+                historyCustomerRows[c] = CompactOrderStore.rowOf(customers, history.customers()[c].getCustomerNumber());
+            }
+            int[] liveCustomerRows = new int[liveCount];
+            for (int i = 0; i < liveCount; i++) {
+                liveCustomerRows[i] = CompactOrderStore.rowOf(customers, live.get(i).getCustomer().getCustomerNumber());
+            }
+
+            // Live orders settled since the last snapshot join the history rows, merged in ID order;
+            // a row at or above zero is a history row, below zero is live order -1 - row
+            byte preparing = (byte) OrderStatus.PREPARING.ordinal();
+            int preparingCount = 0;
+            for (byte status : liveStatuses) {
+                if (status == preparing) preparingCount++;
+            }
+            int[] settled = new int[history.size() + liveCount - preparingCount];
+            int[] preparingRows = new int[preparingCount];
+            for (int h = 0, l = 0, s = 0, p = 0; h < history.size() || l < liveCount; ) {
+                if (l < liveCount && liveStatuses[l] == preparing) {
+                    preparingRows[p++] = l++;
+                    continue;
+                }
+                boolean fromHistory = l == liveCount
+                        || (h < history.size() && history.orderNumber(h) < live.get(l).getOrderNumber());
+                settled[s++] = fromHistory ? h++ : -1 - l++;
+            }
+
+            // Each customer's total over every order, and the leaderboard order that gives
+            long[] settledIds = new long[settled.length];
+            int[] settledCustomers = new int[settled.length];
+            int[] settledQuantities = new int[settled.length];
+            int[] settledStatuses = new int[settled.length];
+            int[] totals = new int[customers.length];
+            for (int s = 0; s < settled.length; s++) {
+                int row = settled[s];
+                settledIds[s] = row >= 0 ? history.orderNumber(row) : live.get(-1 - row).getOrderNumber();
+                settledCustomers[s] = row >= 0 ? historyCustomerRows[history.customerRow(row)] : liveCustomerRows[-1 - row];
+                settledQuantities[s] = row >= 0 ? history.quantity(row) : liveQuantities[-1 - row];
+                settledStatuses[s] = row >= 0 ? history.status(row) : liveStatuses[-1 - row];
+                totals[settledCustomers[s]] += settledQuantities[s] * Order.UNIT_PRICE;
+            }
+            long[] preparingIds = new long[preparingCount];
+            int[] preparingCustomers = new int[preparingCount];
+            int[] preparingQuantities = new int[preparingCount];
+            for (int p = 0; p < preparingCount; p++) {
+                int l = preparingRows[p];
+                preparingIds[p] = live.get(l).getOrderNumber();
+                preparingCustomers[p] = liveCustomerRows[l];
+                preparingQuantities[p] = liveQuantities[l];
+                totals[liveCustomerRows[l]] += liveQuantities[l] * Order.UNIT_PRICE;
+            }
+            // Rows ascend with customer number, so ties go to the lower row as on the leaderboard
+            int[] byTotal = IntStream.range(0, customers.length).boxed()
+                    .sorted((a, b) -> totals[a] != totals[b] ? Integer.compare(totals[b], totals[a]) : Integer.compare(a, b))
+                    .mapToInt(Integer::intValue).toArray();
+
+            // Customers new since the last snapshot have their registry and name keys sorted here,
+            // then merged with the history store's, which already are
+            boolean[] inHistory = new boolean[customers.length];
+            for (int row : historyCustomerRows) inHistory[row] = true;
+            TreeMap<String, Integer> freshRegistryKeys = new TreeMap<>();
+            TreeMap<String, int[]> freshNameKeys = new TreeMap<>();
+            for (int c = 0; c < customers.length; c++) {
+                if (inHistory[c]) continue;
+                String key = OrderManager.customerKey(customers[c].getName(), customers[c].getPhone());
+                if (key != null) freshRegistryKeys.put(key, c);
+                List<String> own = OrderManager.nameKeys(customers[c]);
+                for (int k = 0; k < own.size(); k++) freshNameKeys.put(own.get(k), new int[] {c, k});
+            }
+            int[] registryOrder = mergeKeys(history.registryKeyCount(), history::registryKey, freshRegistryKeys.navigableKeySet());
+            List<Integer> freshRegistryRows = new ArrayList<>(freshRegistryKeys.values());
+            int[] byRegistryKey = new int[registryOrder.length];
+            for (int i = 0; i < registryOrder.length; i++) {
+                int at = registryOrder[i];
+                byRegistryKey[i] = at >= 0 ? historyCustomerRows[history.registryKeyRow(at)] : freshRegistryRows.get(-1 - at);
+            }
+            int[] nameOrder = mergeKeys(history.nameKeyCount(), history::nameKey, freshNameKeys.navigableKeySet());
+            List<int[]> freshNameOwners = new ArrayList<>(freshNameKeys.values());
+            int[] nameKeyOwners = new int[nameOrder.length];
+            int[] nameKeyOrdinals = new int[nameOrder.length];
+            for (int i = 0; i < nameOrder.length; i++) {
+                int at = nameOrder[i];
+                nameKeyOwners[i] = at >= 0 ? historyCustomerRows[history.nameKeyOwner(at)] : freshNameOwners.get(-1 - at)[0];
+                nameKeyOrdinals[i] = at >= 0 ? history.nameKeyOrdinal(at) : freshNameOwners.get(-1 - at)[1];
+            }
+
+            Path target = snapshotFile(dir, firstSegment);
+            Path temp = dir.resolve(target.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(firstSegment);
+                out.writeLong(manager.getOrderCounter());
+                out.writeLong(manager.getCustomerCounter());
+                out.writeInt(customers.length);
+                out.writeInt(byRegistryKey.length);
+                out.writeInt(nameKeyOwners.length);
+                out.writeInt(settled.length);
+                out.writeInt(preparingCount);
+
+                long[] customerIds = new long[customers.length];
+                byte[][] names = new byte[customers.length][];
+                byte[][] phones = new byte[customers.length][];
+                for (int i = 0; i < names.length; i++) {
+                    customerIds[i] = customers[i].getCustomerNumber();
+                    names[i] = customers[i].getName().getBytes(StandardCharsets.UTF_8);
+                    phones[i] = customers[i].getPhone().getBytes(StandardCharsets.UTF_8);
+                }
+                writeLongs(out, customerIds);
+                writeEnds(out, names);
+                writeEnds(out, phones);
+                for (byte[] name : names) out.write(name);
+                for (byte[] phone : phones) out.write(phone);
+                writeInts(out, totals);
+                writeInts(out, byTotal);
+                writeInts(out, byRegistryKey);
+                writeInts(out, nameKeyOwners);
+                writeInts(out, nameKeyOrdinals);
+
+                writeLongs(out, settledIds);
+                writeInts(out, settledCustomers);
+                writeInts(out, settledQuantities);
+                byte[] statuses = new byte[settled.length];
+                for (int s = 0; s < settled.length; s++) statuses[s] = (byte) settledStatuses[s];
+                out.write(statuses);
+                writeIndex(out, settledCustomers, customers.length);
+                writeIndex(out, settledStatuses, STATUS_COUNT);
+
+                writeLongs(out, preparingIds);
+                writeInts(out, preparingCustomers);
+                writeInts(out, preparingQuantities);
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            OrderJournal.deleteSegmentsBefore(dir, firstSegment);
+            deleteSnapshotsBefore(dir, firstSegment);
+        }
+
+        // The history store's customers and those first seen in live orders, by customer number
+        private static Customer[] customersOf(CompactOrderStore history, List<Order> live) {
+            Set<Customer> fresh = new HashSet<>();
+            for (Order o : live) {
+                if (CompactOrderStore.rowOf(history.customers(), o.getCustomer().getCustomerNumber()) < 0) {
+                    fresh.add(o.getCustomer());
+                }
+            }
+            List<Customer> all = new ArrayList<>(Arrays.asList(history.customers()));
+            all.addAll(fresh);
+            all.sort(Comparator.comparingLong(Customer::getCustomerNumber));
+            return all.toArray(new Customer[0]);
+        }
+
+        /**
+         * Merges the history store's sorted keys with fresh ones into one sorted order,
+         * given as positions: at or above zero in the history store, below zero fresh
+         * key -1 - i. Each fresh key is placed by binary search, so only a few history
+         * keys are rebuilt for each rather than all of them.
+         */
+        private static int[] mergeKeys(int historyCount, IntFunction<String> historyKey, SortedSet<String> fresh) {
+            int[] merged = new int[historyCount + fresh.size()];
+            int i = 0;
+            int h = 0;
+            int f = 0;
+            for (String key : fresh) {
+                int at = CompactOrderStore.atOrAfter(h, historyCount, historyKey, key);
+                while (h < at) merged[i++] = h++;
+                merged[i++] = -1 - f++;
+            }
+            while (h < historyCount) merged[i++] = h++;
+            return merged;
+        }
+
+        private static void writeEnds(DataOutputStream out, byte[][] values) throws IOException {
+            int[] ends = new int[values.length];
+            int end = 0;
+            for (int i = 0; i < values.length; i++) {
+                end += values[i].length;
+                ends[i] = end;
+            }
+            writeInts(out, ends);
+        }
+
+        // Whole columns at once; DataOutputStream would pass each int on a byte at a time
+        private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(values.length * 4);
+            bytes.asIntBuffer().put(values);
+            out.write(bytes.array());
+        }
+
+        private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(values.length * 8);
+            bytes.asLongBuffer().put(values);
+            out.write(bytes.array());
+        }
+
+        // Rows grouped by key, as keyCount + 1 group starts then the rows, ascending within each group
+        private static void writeIndex(DataOutputStream out, int[] keys, int keyCount) throws IOException {
+            int[] starts = new int[keyCount + 1];
+            for (int key : keys) starts[key + 1]++;
+            for (int k = 0; k < keyCount; k++) starts[k + 1] += starts[k];
+            writeInts(out, starts);
+            int[] rows = new int[keys.length];
+            int[] next = Arrays.copyOf(starts, keyCount);
+            for (int row = 0; row < keys.length; row++) rows[next[keys[row]]++] = row;
+            writeInts(out, rows);
+        }
+
+        private static String[] readStrings(ByteBuffer buf, int[] ends) {
+            byte[] bytes = new byte[ends.length == 0 ? 0 : ends[ends.length - 1]];
+            buf.get(bytes);
+            String[] values = new String[ends.length];
+            int start = 0;
+            for (int i = 0; i < ends.length; i++) {
+                values[i] = new String(bytes, start, ends[i] - start, StandardCharsets.UTF_8);
+                start = ends[i];
+            }
+            return values;
+        }
+
+        private static void deleteSnapshotsBefore(Path dir, long firstSegment) throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "snapshot-*.bin")) {
+                for (Path file : files) {
+                    if (file.getFileName().toString().compareTo(snapshotFile(dir, firstSegment).getFileName().toString()) < 0) {
+                        try {
+                            Files.deleteIfExists(file);
+                        } catch (IOException ignored) {
+                            // The loaded snapshot stays mapped for its history store, which some platforms refuse to delete; the next snapshot retries
+                        }
+                    }
+                }
+            }
+        }
+
+        // Loads the newest snapshot and returns the first journal segment to replay after it
+        static long loadLatest(Path dir, OrderManager manager) throws IOException {
+            Path latest = null;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "snapshot-*.bin")) {
+                for (Path file : files) {
+                    if (latest == null || file.getFileName().toString().compareTo(latest.getFileName().toString()) > 0) {
+                        latest = file;
+                    }
+                }
+            }
+            return latest == null ? 1 : load(latest, manager);
+        }
+
+        private static MappedByteBuffer map(Path file) throws IOException {
+            MappedByteBuffer buf;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("Not an order snapshot: " + file);
+            }
+            return buf;
+        }
+
+        static long load(Path file, OrderManager manager) throws IOException {
+            MappedByteBuffer buf = map(file);
+            long firstSegment = buf.getLong();
+            long orderCounter = buf.getLong();
+            long customerCounter = buf.getLong();
+            int customerCount = buf.getInt();
+            int registryKeyCount = buf.getInt();
+            int nameKeyCount = buf.getInt();
+            int settledCount = buf.getInt();
+            int preparingCount = buf.getInt();
+
+            long[] customerIds = readLongs(buf, customerCount);
+            int[] nameEnds = readInts(buf, customerCount);
+            int[] phoneEnds = readInts(buf, customerCount);
+            String[] names = readStrings(buf, nameEnds);
+            String[] phones = readStrings(buf, phoneEnds);
+            int[] totals = readInts(buf, customerCount);
+            int[] byTotal = readInts(buf, customerCount);
+            IntBuffer byRegistryKey = ints(buf, registryKeyCount);
+            IntBuffer nameKeyOwners = ints(buf, nameKeyCount);
+            IntBuffer nameKeyOrdinals = ints(buf, nameKeyCount);
+            // Settled orders can no longer change, so the history store reads them where they lie
+            LongBuffer settledIds = longs(buf, settledCount);
+            IntBuffer settledCustomers = ints(buf, settledCount);
+            IntBuffer settledQuantities = ints(buf, settledCount);
+            ByteBuffer settledStatuses = buf.slice(buf.position(), settledCount);
+            buf.position(buf.position() + settledCount);
+            IntBuffer customerStarts = ints(buf, customerCount + 1);
+            IntBuffer byCustomer = ints(buf, settledCount);
+            IntBuffer statusStarts = ints(buf, STATUS_COUNT + 1);
+            IntBuffer byStatus = ints(buf, settledCount);
+            long[] preparingIds = readLongs(buf, preparingCount);
+            int[] preparingCustomers = readInts(buf, preparingCount);
+            int[] preparingQuantities = readInts(buf, preparingCount);
+
+            Customer[] customers = new Customer[customerCount];
+            for (int i = 0; i < customerCount; i++) customers[i] = new Customer(customerIds[i], names[i], phones[i]);
+            List<Order> live = new ArrayList<>(preparingCount);
+            for (int i = 0; i < preparingCount; i++) {
+                live.add(new Order(preparingIds[i], customers[preparingCustomers[i]], preparingQuantities[i],
+                        OrderStatus.PREPARING));
+            }
+            manager.restoreSnapshot(new CompactOrderStore(customers, byRegistryKey, nameKeyOwners, nameKeyOrdinals,
+                    settledIds, settledCustomers, settledQuantities, settledStatuses, customerStarts, byCustomer,
+                    statusStarts, byStatus), live, totals, byTotal);
+            manager.restoreCounters(orderCounter, customerCounter);
+            return firstSegment;
+        }
+
+        private static int[] readInts(ByteBuffer buf, int count) {
+            int[] values = new int[count];
+            buf.asIntBuffer().get(values);
+            buf.position(buf.position() + count * 4);
+            return values;
+        }
+
+        private static long[] readLongs(ByteBuffer buf, int count) {
+            long[] values = new long[count];
+            buf.asLongBuffer().get(values);
+            buf.position(buf.position() + count * 8);
+            return values;
+        }
+
+        // The next count values as a view of the file, read in place
+        private static IntBuffer ints(ByteBuffer buf, int count) {
+            IntBuffer view = buf.slice(buf.position(), count * 4).asIntBuffer();
+            buf.position(buf.position() + count * 4);
+            return view;
+        }
+
+        private static LongBuffer longs(ByteBuffer buf, int count) {
+            LongBuffer view = buf.slice(buf.position(), count * 8).asLongBuffer();
+            buf.position(buf.position() + count * 8);
+            return view;
+        }
+    }
+
+    /**
+     * Revenue by status, quantity distribution, top customers and cancellation rate
+     * over every order. Built from a parallel stream: each worker folds its orders
+     * into a private Tally and the tallies are merged at the end, so the scan shares
+     * no state. Orders changed during the scan may be counted before or after.
+     */
+    static class SalesReport {
+        // Quantities below this are counted in an array; larger ones in a map
+        private static final int SMALL_QUANTITY = 64;
+
+        final long orderCount;
+        final Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+        final Map<OrderStatus, Long> revenueByStatus = new EnumMap<>(OrderStatus.class);
+        final SortedMap<Integer, Long> quantityDistribution = new TreeMap<>();
+        final List<Map.Entry<Customer, Long>> topCustomers;
+
+        private SalesReport(Tally tally, int topN) {
+            orderCount = tally.orderCount;
+            for (OrderStatus status : OrderStatus.values()) {
+                ordersByStatus.put(status, tally.orders[status.ordinal()]);
+                revenueByStatus.put(status, tally.revenue[status.ordinal()]);
+            }
+            for (int q = 0; q < SMALL_QUANTITY; q++) {
+                if (tally.smallQuantities[q] > 0) quantityDistribution.put(q, tally.smallQuantities[q]);
+            }
+            quantityDistribution.putAll(tally.largeQuantities);
+            topCustomers = tally.top(topN);
+        }
+
+        static SalesReport build(Stream<Order> orders, int topN) {
+            return new SalesReport(orders.collect(Tally::new, Tally::add, Tally::merge), topN);
+        }
+
+        long getTotalRevenue() {
+            long total = 0;
+            for (long revenue : revenueByStatus.values()) total += revenue;
+            return total;
+        }
+
+        double getCancellationRate() {
+            return orderCount == 0 ? 0 : (double) ordersByStatus.get(OrderStatus.CANCELLED) / orderCount;
+        }
+
+        private static final class Tally {
+            long orderCount;
+            final long[] orders = new long[OrderStatus.values().length];
+            final long[] revenue = new long[OrderStatus.values().length];
+            final long[] smallQuantities = new long[SMALL_QUANTITY];
+            final Map<Integer, Long> largeQuantities = new HashMap<>();
+            // Mutable cells so adding to a running total does not box
+            final Map<Customer, long[]> spend = new HashMap<>();
+
+            void add(Order o) {
+                int qty = o.getQuantity();
+                long total = (long) qty * Order.UNIT_PRICE;
+                int status = o.getStatus().ordinal();
+                orderCount++;
+                orders[status]++;
+                revenue[status] += total;
+                if (qty >= 0 && qty < SMALL_QUANTITY) {
+                    smallQuantities[qty]++;
+                } else {
+                    largeQuantities.merge(qty, 1L, Long::sum);
+                }
+                spend.computeIfAbsent(o.getCustomer(), c -> new long[1])[0] += total;
+            }
+
+            void merge(Tally other) {
+                orderCount += other.orderCount;
+                for (int i = 0; i < orders.length; i++) {
+                    orders[i] += other.orders[i];
+                    revenue[i] += other.revenue[i];
+                }
+                for (int q = 0; q < SMALL_QUANTITY; q++) smallQuantities[q] += other.smallQuantities[q];
+                other.largeQuantities.forEach((q, n) -> largeQuantities.merge(q, n, Long::sum));
+                for (Map.Entry<Customer, long[]> e : other.spend.entrySet()) {
+                    long[] cell = spend.putIfAbsent(e.getKey(), e.getValue());
+                    if (cell != null) cell[0] += e.getValue()[0];
+                }
+            }
+
+            // Highest spend first, ties by customer ID, same as the leaderboard
+            List<Map.Entry<Customer, Long>> top(int n) {
+                Comparator<Map.Entry<Customer, Long>> order = Comparator
+                        .comparing((Map.Entry<Customer, Long> e) -> e.getValue()).reversed()
+                        .thenComparingLong(e -> e.getKey().getCustomerNumber());
+                // Worst of the current top n at the head, so each customer costs O(log n)
+                PriorityQueue<Map.Entry<Customer, Long>> best = new PriorityQueue<>(order.reversed());
+                for (Map.Entry<Customer, long[]> e : spend.entrySet()) {
+                    best.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()[0]));
+                    if (best.size() > n) best.poll();
+                }
+                List<Map.Entry<Customer, Long>> list = new ArrayList<>(best);
+                list.sort(order);
+                return list;
+            }
+        }
+    }
+
+    /**
+     * Streams a CSV file of name, contact number, quantity rows into the manager.
+     * The file is read through a FileChannel in chunks cut at line ends; chunks are
+     * parsed in parallel and handed to {@link OrderManager#addOrders} in file order,
+     * so order IDs follow the file and memory stays bounded by the parse window.
+     */
+    static class OrderImporter {
+        static final int CHUNK_SIZE = 1 << 20;
+
+        static final class Result {
+            final long imported;
+            final long skipped;
+
+            Result(long imported, long skipped) {
+                this.imported = imported;
+                this.skipped = skipped;
+            }
+        }
+
+        private static final class ParsedChunk {
+            final List<OrderManager.NewOrder> rows = new ArrayList<>();
+            int skipped;
+        }
+
+        static Result importCsv(Path file, OrderManager manager) throws IOException {
+            int window = Runtime.getRuntime().availableProcessors() * 2;
+            Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+            long imported = 0;
+            long skipped = 0;
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+                boolean first = true;
+                boolean eof = false;
+                while (!eof) {
+                    eof = in.read(buf) < 0;
+                    int cut = eof ? buf.position() : lastLineEnd(buf);
+                    if (cut < 0) {
+                        // A single line longer than the buffer
+                        if (!buf.hasRemaining()) buf = grow(buf);
+                        continue;
+                    }
+                    byte[] chunk = new byte[cut];
+                    buf.flip();
+                    buf.get(chunk);
+                    buf.compact();
+                    boolean header = first;
+                    first = false;
+                    inFlight.add(ForkJoinPool.commonPool().submit(() -> parse(chunk, header)));
+                    while (inFlight.size() >= window || (eof && !inFlight.isEmpty())) {
+                        ParsedChunk parsed = await(inFlight.poll());
+                        manager.addOrders(parsed.rows);
+                        imported += parsed.rows.size();
+                        skipped += parsed.skipped;
+                    }
+                }
+            } finally {
+                for (Future<ParsedChunk> f : inFlight) f.cancel(true);
+            }
+            return new Result(imported, skipped);
+        }
+
+        // Position just past the last newline read so far, or -1 if there is none
+        private static int lastLineEnd(ByteBuffer buf) {
+            for (int i = buf.position() - 1; i >= 0; i--) {
+                if (buf.get(i) == '\n') return i + 1;
+            }
+            return -1;
+        }
+
+        private static ByteBuffer grow(ByteBuffer buf) {
+            ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+            buf.flip();
+            return bigger.put(buf);
+        }
+
+        private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            } catch (ExecutionException ex) {
+                throw new IOException("Could not parse import file", ex.getCause());
+            }
+        }
+
+        // Newlines are single bytes in UTF-8, so a chunk never splits a character
+        private static ParsedChunk parse(byte[] chunk, boolean mayHaveHeader) {
+            ParsedChunk parsed = new ParsedChunk();
+            String text = new String(chunk, StandardCharsets.UTF_8);
+            int start = 0;
+            boolean firstLine = true;
+            while (start < text.length()) {
+                int end = text.indexOf('\n', start);
+                if (end < 0) end = text.length();
+                String line = text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end);
+                start = end + 1;
+                if (line.isBlank()) continue;
+                OrderManager.NewOrder row = parseRow(line);
+                if (row != null) {
+                    parsed.rows.add(row);
+                } else if (!(mayHaveHeader && firstLine)) {
+                    parsed.skipped++;
+                }
+                firstLine = false;
+            }
+            return parsed;
+        }
+
+        private static OrderManager.NewOrder parseRow(String line) {
+            List<String> fields = splitFields(line);
+            if (fields.size() != 3) return null;
+            String name = fields.get(0).trim();
+            if (name.isEmpty()) return null;
+            try {
+                int qty = Integer.parseInt(fields.get(2).trim());
+                return qty > 0 ? new OrderManager.NewOrder(name, fields.get(1).trim(), qty) : null;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        // Splits on commas, honouring "quoted, fields" with "" as an escaped quote
+        static List<String> splitFields(String line) {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char ch = line.charAt(i);
+                if (quoted) {
+                    if (ch != '"') {
+                        field.append(ch);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (ch == '"') {
+                    quoted = true;
+                } else if (ch == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(ch);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    /**
+     * Drives an OrderManager from several till threads without any UI, for sizing
+     * lunch-rush load. Each till runs open-loop at its share of the arrival rate and
+     * measures latency from when the operation was due, not when it started, so a
+     * stall is charged to every arrival that queued behind it.
+     * Run with: java BurgerShopApp --simulate [--tills=4] [--rate=400] [--seconds=30]
+     *   [--warmup=3] [--preload=100000] [--customers=5000] [--journal=DIR]
+     *   [--mix=add=40,quantity=10,deliver=30,cancel=5,search=15]
+     * A rate of 0 runs every till flat out.
+     */
+    static class LoadSimulator {
+        enum Operation { ADD, QUANTITY, DELIVER, CANCEL, SEARCH }
+
+        // Orders touched by updates are drawn from the most recent ones, as in a kitchen
+        private static final int RECENT_ORDERS = 1000;
+        // Parking wakes late by tens of microseconds, so the last stretch before an arrival is spun
+        private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+        private static final String[] FIRST_NAMES = {"Amal", "Kasun", "Nimal", "Saman", "Ruwan", "Dilani", "Ishara", "Chamari"};
+        private static final String[] LAST_NAMES = {"Perera", "Silva", "Fernando", "Jayasinghe", "Bandara", "Dias"};
+
+        private final OrderManager manager;
+        private final int tills;
+        private final double rate;
+        private final long measureNanos;
+        private final long warmupNanos;
+        private final int customers;
+        private final int[] mix = new int[Operation.values().length];
+        private int mixTotal;
+
+        LoadSimulator(OrderManager manager, Map<String, String> options) {
+            this.manager = manager;
+            tills = Integer.parseInt(options.getOrDefault("tills", "4"));
+            rate = Double.parseDouble(options.getOrDefault("rate", "400"));
+            measureNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("seconds", "30")));
+            warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "3")));
+            customers = Integer.parseInt(options.getOrDefault("customers", "5000"));
+            for (String part : options.getOrDefault("mix", "add=40,quantity=10,deliver=30,cancel=5,search=15").split(",")) {
+                String[] kv = part.split("=");
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("mix entry \"" + part + "\" is not operation=weight");
+                }
+                Operation op;
+                try {
+                    op = Operation.valueOf(kv[0].trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("unknown mix operation \"" + kv[0].trim() + "\", expected one of "
+                            + Arrays.toString(Operation.values()).toLowerCase(Locale.ROOT));
+                }
+                int weight = Integer.parseInt(kv[1].trim());
+                if (weight < 0) throw new IllegalArgumentException("mix weight for " + kv[0].trim() + " is negative");
+                mix[op.ordinal()] = weight;
+            }
+            for (int weight : mix) mixTotal += weight;
+            if (tills <= 0 || rate < 0 || customers <= 0 || mixTotal <= 0) {
+                throw new IllegalArgumentException("tills, customers and the mix must be positive, rate not negative");
+            }
+        }
+
+        static void main(String[] args) {
+            Map<String, String> options = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                    System.err.println("Unrecognised option " + arg + "; expected --name=value");
+                    System.exit(2);
+                }
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            OrderManager manager = new OrderManager();
+            try {
+                if (options.containsKey("journal")) OrderJournal.open(Paths.get(options.get("journal")), manager);
+                LoadSimulator simulator = new LoadSimulator(manager, options);
+                simulator.preload(Integer.parseInt(options.getOrDefault("preload", "100000")));
+                simulator.run();
+            } catch (IOException ex) {
+                System.err.println("Could not open journal: " + ex.getMessage());
+                System.exit(1);
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Invalid option: " + ex.getMessage());
+                System.exit(2);
+            } finally {
+                manager.close();
+            }
+        }
+
+        void preload(int count) {
+            List<OrderManager.NewOrder> batch = new ArrayList<>(count);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < count; i++) {
+                int n = random.nextInt(customers);
+                batch.add(new OrderManager.NewOrder(customerName(n), customerPhone(n), 1 + random.nextInt(5)));
+            }
+            manager.addOrders(batch);
+        }
+
+        void run() {
+            double perTill = rate / tills;
+            long interval = perTill == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / perTill);
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureFrom = start + warmupNanos;
+            long end = measureFrom + measureNanos;
+            List<LatencyHistogram[]> results = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < tills; t++) {
+                Thread till = new Thread(() -> results.add(runTill(start, interval, measureFrom, end)), "till-" + t);
+                threads.add(till);
+                till.start();
+            }
+            for (Thread till : threads) {
+                try {
+                    till.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            report(results);
+        }
+
+        private LatencyHistogram[] runTill(long start, long interval, long measureFrom, long end) {
+            LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+            for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // Spread the tills' first arrivals across one interval
+            long due = start + (interval == 0 ? 0 : random.nextLong(interval));
+            while (true) {
+                long now = System.nanoTime();
+                if (interval == 0) {
+                    due = now;
+                } else if (now < due) {
+                    if (due - now > SPIN_NANOS) {
+                        LockSupport.parkNanos(due - now - SPIN_NANOS);
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                    continue;
+                }
+                if (due >= end) break;
+                Operation op = pick(random);
+                perform(op, random);
+                if (due >= measureFrom) histograms[op.ordinal()].record(System.nanoTime() - due);
+                due += interval;
+            }
+            return histograms;
+        }
+
+        private Operation pick(ThreadLocalRandom random) {
+            int roll = random.nextInt(mixTotal);
+            for (Operation op : Operation.values()) {
+                roll -= mix[op.ordinal()];
+                if (roll < 0) return op;
+            }
+            throw new IllegalStateException();
+        }
+
+        private void perform(Operation op, ThreadLocalRandom random) {
+            switch (op) {
+                case ADD:
+                    int n = random.nextInt(customers);
+                    manager.addOrder(customerName(n), customerPhone(n), 1 + random.nextInt(5));
+                    break;
+                case QUANTITY:
+                    manager.updateOrderQuantity(recentOrder(random), 1 + random.nextInt(5));
+                    break;
+                case DELIVER:
+                    manager.updateOrderStatus(recentOrder(random), OrderStatus.DELIVERED);
+                    break;
+                case CANCEL:
+                    manager.updateOrderStatus(recentOrder(random), OrderStatus.CANCELLED);
+                    break;
+                case SEARCH:
+                    switch (random.nextInt(3)) {
+                        case 0: manager.searchOrder(recentOrder(random)); break;
+                        case 1: manager.searchOrdersByPrefix(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)].substring(0, 3), TYPE_AHEAD_LIMIT); break;
+                        default: manager.searchCustomerOrders(1 + random.nextInt(Math.max(1, (int) manager.getCustomerCounter())));
+                    }
+                    break;
+            }
+        }
+
+        private long recentOrder(ThreadLocalRandom random) {
+            long newest = manager.getOrderCounter();
+            return Math.max(1, newest - random.nextInt(RECENT_ORDERS));
+        }
+
+        // A phone per simulated customer, so their repeat orders are recognised
+        private static String customerPhone(int n) {
+            String digits = Integer.toString(n);
+            return "07" + "00000000".substring(Math.min(digits.length(), 8)) + digits;
+        }
+
+        private static String customerName(int n) {
+            return FIRST_NAMES[n % FIRST_NAMES.length] + " " + LAST_NAMES[(n / FIRST_NAMES.length) % LAST_NAMES.length] + " " + n;
+        }
+
+        private void report(List<LatencyHistogram[]> results) {
+            double seconds = measureNanos / 1e9;
+            System.out.printf("%d tills, target %s ops/s, %.0f s measured after %d s warm-up, %d orders in the book%n",
+                    tills, rate == 0 ? "unlimited" : String.format("%.0f", rate), seconds,
+                    TimeUnit.NANOSECONDS.toSeconds(warmupNanos), manager.getOrderCounter());
+            System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+                    "operation", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+            LatencyHistogram all = new LatencyHistogram();
+            for (Operation op : Operation.values()) {
+                LatencyHistogram merged = new LatencyHistogram();
+                for (LatencyHistogram[] till : results) merged.add(till[op.ordinal()]);
+                all.add(merged);
+                printRow(op.toString().toLowerCase(Locale.ROOT), merged, seconds);
+            }
+            printRow("all", all, seconds);
+        }
+
+        private static void printRow(String name, LatencyHistogram h, double seconds) {
+            if (h.count() == 0) return;
+            System.out.printf("%-10s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, h.count(), h.count() / seconds,
+                    h.percentile(50) / 1e3, h.percentile(90) / 1e3, h.percentile(99) / 1e3,
+                    h.percentile(99.9) / 1e3, h.max() / 1e3);
+        }
     }
 
-    static class Customer {
-        private final String customerID;
-        private final String name;
+    /**
+     * Latency counts in logarithmic buckets, each power of two split into 16 linear
+     * sub-buckets, so any value is reported within about 6% using a fixed 8 KB
+     * array. One per thread; merge with {@link #add}.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts[index(value)]++;
+            count++;
+            max = Math.max(max, value);
+        }
 
-        public Customer(String customerID, String name) {
-            this.customerID = customerID;
-            this.name = name;
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            count += other.count;
+            max = Math.max(max, other.max);
         }
 
-        public String getCustomerID() { return customerID; }
-        public String getName() { return name; }
+        long count() { return count; }
+        long max() { return max; }
+
+        // Highest value in the bucket holding the given percentile
+        long percentile(double percent) {
+            long target = Math.max(1, (long) Math.ceil(percent / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(highestIn(i), max);
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long highestIn(int index) {
+            int block = index / SUB_BUCKETS;
+            int sub = index % SUB_BUCKETS;
+            if (block == 0) return sub;
+            int shift = block - 1;
+            return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+        }
     }
 
-    static class Order {
-        private final String orderID;
-        private final Customer customer;
-        private int quantity;
-        private OrderStatus status;
-        private final int unitPrice = 500;
+    enum OrderColumn {
+        ORDER_ID(String.class, true) {
+            Object valueOf(Order o) { return o.getOrderID(); }
+        },
+        CUSTOMER_ID(String.class, true) {
+            Object valueOf(Order o) { return o.getCustomer().getCustomerID(); }
+        },
+        NAME(String.class) {
+            Object valueOf(Order o) { return o.getCustomer().getName(); }
+        },
+        QUANTITY(Integer.class) {
+            Object valueOf(Order o) { return o.getQuantity(); }
+        },
+        STATUS(OrderStatus.class) {
+            Object valueOf(Order o) { return o.getStatus(); }
+        },
+        TOTAL(Integer.class) {
+            Object valueOf(Order o) { return o.getTotal(); }
+        };
+
+        private final Class<?> type;
+        private final boolean id;
+
+        OrderColumn(Class<?> type) { this(type, false); }
+
+        OrderColumn(Class<?> type, boolean id) {
+            this.type = type;
+            this.id = id;
+        }
 
-        public Order(String orderID, Customer customer, int quantity, OrderStatus status) {
-            this.orderID = orderID;
-            this.customer = customer;
-            this.quantity = quantity;
-            this.status = status;
+        abstract Object valueOf(Order o);
+    }
+
+    static abstract class ListTableModel<T> extends AbstractTableModel {
+        private final List<T> rows = new ArrayList<>();
+
+        void clear() {
+            rows.clear();
+            fireTableDataChanged();
         }
 
-        public String getOrderID() { return orderID; }
-        public Customer getCustomer() { return customer; }
-        public int getQuantity() { return quantity; }
-        public void setQuantity(int q) { this.quantity = q; }
-        public OrderStatus getStatus() { return status; }
-        public void setStatus(OrderStatus status) { this.status = status; }
-        public int getTotal() { return quantity * unitPrice; }
+        void appendRows(List<T> more) {
+            if (more.isEmpty()) return;
+            int first = rows.size();
+            rows.addAll(more);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        // Deletes the marked rows with one event per contiguous run, last run first
+        void removeRows(BitSet marked) {
+            int end = marked.length() - 1;
+            while (end >= 0) {
+                int start = marked.previousClearBit(end) + 1;
+                rows.subList(start, end + 1).clear();
+                fireTableRowsDeleted(start, end);
+                end = marked.previousSetBit(start - 1);
+            }
+        }
+
+        void rowsUpdated(BitSet marked) {
+            for (int start = marked.nextSetBit(0); start >= 0; ) {
+                int end = marked.nextClearBit(start) - 1;
+                fireTableRowsUpdated(start, end);
+                start = marked.nextSetBit(end + 1);
+            }
+        }
+
+        T getRow(int row) { return rows.get(row); }
+
+        // Columns of formatted IDs, which must sort by number rather than as text
+        boolean isIdColumn(int column) { return false; }
+
+        @Override public int getRowCount() { return rows.size(); }
     }
 
-    static class OrderManager {
-        private final List<Order> orders = new ArrayList<>();
-        private final Map<String, Customer> customers = new HashMap<>();
-        private int orderCounter = 0;
-        private int customerCounter = 0;
+    // Reads cells straight from the Order objects; nothing is copied or formatted up front
+    static class OrderTableModel extends ListTableModel<Order> {
+        private final String[] headers;
+        private final OrderColumn[] columns;
+        private final Map<Order, Integer> rowOf = new HashMap<>();
+        private Predicate<Order> filter = o -> true;
 
-        public String generateOrderID() {
-            orderCounter++;
-            return String.format("O%03d", orderCounter);
+        OrderTableModel(String[] headers, OrderColumn... columns) {
+            this.headers = headers;
+            this.columns = columns;
         }
 
-        public String generateCustomerID() {
-            customerCounter++;
-            return String.format("C%03d", customerCounter);
+        // Which orders belong in this view; checked again whenever an order changes
+        void setFilter(Predicate<Order> filter) {
+            this.filter = filter;
         }
 
-        public Order addOrder(String customerName, int qty) {
-            String cID = generateCustomerID();
-            Customer c = new Customer(cID, customerName);
-            customers.put(cID, c);
+        @Override
+        void clear() {
+            rowOf.clear();
+            super.clear();
+        }
 
-            String oID = generateOrderID();
-            Order o = new Order(oID, c, qty, OrderStatus.PREPARING);
-            orders.add(o);
-            return o;
+        // Skips orders a live update already added, or that have left the view since the query ran
+        @Override
+        void appendRows(List<Order> more) {
+            List<Order> fresh = new ArrayList<>(more.size());
+            for (Order o : more) {
+                if (rowOf.containsKey(o) || !filter.test(o)) continue;
+                rowOf.put(o, getRowCount() + fresh.size());
+                fresh.add(o);
+            }
+            super.appendRows(fresh);
         }
 
-        public Order searchOrder(String orderID) {
-            for (Order o : orders) {
-                if (o.getOrderID().equalsIgnoreCase(orderID)) return o;
+        // One batch of changed orders: repaint, delete and append, each as contiguous ranges
+        void applyChanges(Collection<Order> changed) {
+            BitSet updated = new BitSet();
+            BitSet removed = new BitSet();
+            List<Order> added = new ArrayList<>();
+            for (Order o : changed) {
+                Integer row = rowOf.get(o);
+                boolean belongs = filter.test(o);
+                if (row == null) {
+                    if (belongs) added.add(o);
+                } else if (belongs) {
+                    updated.set(row);
+                } else {
+                    removed.set(row);
+                }
             }
-            return null;
+            rowsUpdated(updated);
+            if (!removed.isEmpty()) {
+                for (int row = removed.nextSetBit(0); row >= 0; row = removed.nextSetBit(row + 1)) {
+                    rowOf.remove(getRow(row));
+                }
+                removeRows(removed);
+                for (int row = removed.nextSetBit(0); row < getRowCount(); row++) rowOf.put(getRow(row), row);
+            }
+            added.sort(OrderManager.BY_ORDER_ID);
+            appendRows(added);
         }
 
-        public List<Order> searchCustomerOrders(String customerID) {
-            List<Order> result = new ArrayList<>();
-            for (Order o : orders) {
-                if (o.getCustomer().getCustomerID().equalsIgnoreCase(customerID)) result.add(o);
+        @Override public int getColumnCount() { return columns.length; }
+        @Override public String getColumnName(int column) { return headers[column]; }
+        @Override public Class<?> getColumnClass(int column) { return columns[column].type; }
+        @Override boolean isIdColumn(int column) { return columns[column].id; }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return columns[column].valueOf(getRow(row));
+        }
+    }
+
+    static class CustomerTotalTableModel extends ListTableModel<Map.Entry<Customer, Integer>> {
+        private static final String[] HEADERS = {"Customer ID", "Name", "Total"};
+
+        @Override public int getColumnCount() { return HEADERS.length; }
+        @Override public String getColumnName(int column) { return HEADERS[column]; }
+        @Override public Class<?> getColumnClass(int column) { return column == 2 ? Integer.class : String.class; }
+        @Override boolean isIdColumn(int column) { return column == 0; }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Map.Entry<Customer, Integer> entry = getRow(row);
+            switch (column) {
+                case 0: return entry.getKey().getCustomerID();
+                case 1: return entry.getKey().getName();
+                default: return entry.getValue();
             }
-            return result;
         }
+    }
 
-        public List<Order> viewOrdersByStatus(OrderStatus status) {
-            List<Order> list = new ArrayList<>();
-            for (Order o : orders) {
-                if (o.getStatus() == status) list.add(o);
+    /**
+     * Runs a manager query on {@link #QUERY_EXECUTOR} and feeds the result into a
+     * table model in chunks, so the event thread never waits on the query.
+     */
+    static class RowLoader<T> extends SwingWorker<Integer, List<T>> {
+        private static final int CHUNK_SIZE = 500;
+        private final Callable<List<T>> query;
+        private final ListTableModel<T> model;
+        private final IntConsumer onDone;
+
+        RowLoader(Callable<List<T>> query, ListTableModel<T> model, IntConsumer onDone) {
+            this.query = query;
+            this.model = model;
+            this.onDone = onDone;
+        }
+
+        RowLoader<T> start() {
+            model.clear();
+            QUERY_EXECUTOR.execute(this);
+            return this;
+        }
+
+        @Override
+        protected Integer doInBackground() throws Exception {
+            List<T> result = query.call();
+            for (int i = 0; i < result.size() && !isCancelled(); i += CHUNK_SIZE) {
+                publish(new ArrayList<>(result.subList(i, Math.min(i + CHUNK_SIZE, result.size()))));
             }
-            return list;
+            return result.size();
         }
 
-        public boolean updateOrderQuantity(String orderID, int newQty) {
-            Order o = searchOrder(orderID);
-            if (o == null) return false;
-            if (o.getStatus() != OrderStatus.PREPARING) return false;
-            o.setQuantity(newQty);
-            return true;
+        @Override
+        protected void process(List<List<T>> chunks) {
+            if (isCancelled()) return;
+            for (List<T> chunk : chunks) model.appendRows(chunk);
         }
 
-        public boolean updateOrderStatus(String orderID, OrderStatus newStatus) {
-            Order o = searchOrder(orderID);
-            if (o == null) return false;
-            if (o.getStatus() != OrderStatus.PREPARING) return false;
-            o.setStatus(newStatus);
-            return true;
+        @Override
+        protected void done() {
+            if (isCancelled()) return;
+            try {
+                onDone.accept(get());
+            } catch (InterruptedException | ExecutionException ex) {
+                JOptionPane.showMessageDialog(null, "Could not load orders: " + ex.getCause());
+            }
         }
 
-        public Map<Customer, Integer> getCustomerTotals() {
-            Map<Customer, Integer> totals = new HashMap<>();
-            for (Order o : orders) {
-                Customer c = o.getCustomer();
-                totals.put(c, totals.getOrDefault(c, 0) + o.getTotal());
+        static void cancel(RowLoader<?> loader) {
+            if (loader != null) loader.cancel(true);
+        }
+    }
+
+    /**
+     * Subscribes an order table to {@link OrderManager} events while its window is
+     * showing. Events from any thread are merged per order into a pending set and
+     * applied on the event thread at most once per flush interval, so a burst of
+     * changes becomes a few ranged fireTableRows* calls instead of a reload.
+     */
+    static class LiveOrderFeed implements OrderListener {
+        private static final int FLUSH_MILLIS = 100;
+        private final OrderManager manager;
+        private final OrderTableModel model;
+        private final Set<Order> pending = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final javax.swing.Timer timer = new javax.swing.Timer(FLUSH_MILLIS, e -> flush());
+
+        LiveOrderFeed(Window view, OrderManager manager, OrderTableModel model) {
+            this.manager = manager;
+            this.model = model;
+            timer.setRepeats(false);
+            view.addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentHidden(ComponentEvent e) { stop(); }
+            });
+        }
+
+        // Call before loading the table so no change between query and subscription is missed
+        void start() {
+            manager.addOrderListener(this);
+        }
+
+        void stop() {
+            manager.removeOrderListener(this);
+            timer.stop();
+            pending.clear();
+            scheduled.set(false);
+        }
+
+        @Override public void orderAdded(Order o) { changed(o); }
+        @Override public void quantityChanged(Order o, int oldQuantity) { changed(o); }
+        @Override public void statusChanged(Order o, OrderStatus oldStatus) { changed(o); }
+
+        @Override
+        public void ordersAdded(List<Order> batch) {
+            pending.addAll(batch);
+            schedule();
+        }
+
+        private void changed(Order o) {
+            pending.add(o);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(timer::restart);
+        }
+
+        private void flush() {
+            scheduled.set(false);
+            List<Order> batch = new ArrayList<>(pending.size());
+            for (Iterator<Order> it = pending.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                it.remove();
             }
-            return totals;
+            if (!batch.isEmpty()) model.applyChanges(batch);
         }
+    }
 
-        public List<Map.Entry<Customer, Integer>> getCustomersByTotalDesc() {
-            List<Map.Entry<Customer, Integer>> list = new ArrayList<>(getCustomerTotals().entrySet());
-            list.sort((a,b) -> Integer.compare(b.getValue(), a.getValue()));
-            return list;
+    // For a change the manager applied but could not journal: it stands until the app closes
+    static void showNotSaved(Component parent, String change, UncheckedIOException ex) {
+        JOptionPane.showMessageDialog(parent,
+            change + ", but could not be saved.\n" + ex.getMessage() + ": " + ex.getCause().getMessage() +
+            "\nIt will be lost when the app closes.",
+            "Not Saved", JOptionPane.WARNING_MESSAGE);
+    }
+
+    // Pooled dialogs are hidden rather than disposed, so this listens for hiding
+    static void cancelOnClose(Window window, Supplier<? extends Future<?>> task) {
+        window.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                Future<?> f = task.get();
+                if (f != null) f.cancel(true);
+            }
+        });
+    }
+
+    // Formats a money cell only when it is painted
+    static class MoneyRenderer extends DefaultTableCellRenderer {
+        private final String format;
+
+        MoneyRenderer(String format) {
+            this.format = format;
+            setHorizontalAlignment(SwingConstants.LEFT);
         }
 
-        public List<Order> getAllOrders() {
-            return new ArrayList<>(orders);
+        @Override
+        protected void setValue(Object value) {
+            setText(value == null ? "" : String.format(format, ((Number) value).doubleValue()));
+        }
+    }
+
+    // A prefix letter then digits zero-padded to three, so a longer ID is always a larger number
+    static final Comparator<String> BY_ID_NUMBER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    // Sorts and filters through a view-to-model index map, leaving the model untouched
+    static TableRowSorter<AbstractTableModel> installSorter(JTable table, ListTableModel<?> model) {
+        TableRowSorter<AbstractTableModel> sorter = new TableRowSorter<>(model);
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            // Cells stay the displayed text, so the filter still matches "O1000"
+            if (model.isIdColumn(column)) sorter.setComparator(column, BY_ID_NUMBER);
+        }
+        table.setRowSorter(sorter);
+        return sorter;
+    }
+
+    static void filterRows(TableRowSorter<AbstractTableModel> sorter, String text) {
+        String query = text.trim();
+        sorter.setRowFilter(query.isEmpty() ? null
+                : RowFilter.regexFilter("(?i)" + java.util.regex.Pattern.quote(query)));
+    }
+
+
+    static final int TYPE_AHEAD_DELAY_MILLIS = 150;
+    static final int TYPE_AHEAD_LIMIT = 20;
+
+    // Reruns the lookup once typing pauses for a moment and lists what it returns
+    static <T> JList<T> typeAhead(JTextField field, Function<String, List<T>> lookup, Function<T, String> label) {
+        DefaultListModel<T> matches = new DefaultListModel<>();
+        JList<T> list = new JList<>(matches);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFont(Theme.PLAIN_14);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index,
+                                                          boolean selected, boolean focused) {
+                super.getListCellRendererComponent(l, value, index, selected, focused);
+                @SuppressWarnings("unchecked") T item = (T) value;
+                setText(label.apply(item));
+                return this;
+            }
+        });
+        javax.swing.Timer debounce = new javax.swing.Timer(TYPE_AHEAD_DELAY_MILLIS, e -> {
+            matches.clear();
+            matches.addAll(lookup.apply(field.getText()));
+        });
+        debounce.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { }
+        });
+        return list;
+    }
+
+    // Fonts and colours shared by every window instead of being re-created per dialog
+    static final class Theme {
+        static final Color HEADER = new Color(200, 80, 70);
+        static final Color ACCENT = new Color(220, 80, 70);
+        static final Color CONFIRM = new Color(76, 175, 80);
+        static final Color PANEL = new Color(245, 245, 245);
+        static final Color GRID = new Color(220, 220, 220);
+        static final Color READ_ONLY = new Color(240, 240, 240);
+        static final Color GOLD = new Color(200, 150, 0);
+        static final Color YELLOW = new Color(255, 204, 0);
+
+        static final Font PLAIN_12 = new Font("SansSerif", Font.PLAIN, 12);
+        static final Font PLAIN_14 = new Font("SansSerif", Font.PLAIN, 14);
+        static final Font PLAIN_15 = new Font("SansSerif", Font.PLAIN, 15);
+        static final Font BOLD_13 = new Font("SansSerif", Font.BOLD, 13);
+        static final Font BOLD_14 = new Font("SansSerif", Font.BOLD, 14);
+        static final Font BOLD_15 = new Font("SansSerif", Font.BOLD, 15);
+        static final Font BOLD_16 = new Font("SansSerif", Font.BOLD, 16);
+        static final Font BOLD_18 = new Font("SansSerif", Font.BOLD, 18);
+        static final Font BOLD_20 = new Font("SansSerif", Font.BOLD, 20);
+        static final Font BOLD_22 = new Font("SansSerif", Font.BOLD, 22);
+        static final Font BOLD_24 = new Font("SansSerif", Font.BOLD, 24);
+        static final Font BOLD_28 = new Font("SansSerif", Font.BOLD, 28);
+        static final Font MONO_14 = new Font("Monospaced", Font.PLAIN, 14);
+        static final Font QUANTITY = new Font("Arial", Font.PLAIN, 18);
+
+        private Theme() { }
+    }
+
+    // A pooled dialog keeps its components between openings and reloads its data here
+    interface Reusable {
+        void refresh();
+    }
+
+    /**
+     * Builds each dialog the first time it is asked for and keeps it. Closing a
+     * pooled dialog only hides it, and {@link Reusable#refresh} runs before every
+     * opening, so a reopen costs a data reload rather than a component tree.
+     * Used on the event thread only.
+     */
+    static class DialogPool {
+        private final Map<Object, JDialog> dialogs = new HashMap<>();
+
+        void open(Object key, Supplier<? extends JDialog> factory) {
+            JDialog dialog = dialogs.get(key);
+            if (dialog == null) {
+                dialog = factory.get();
+                dialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+                dialogs.put(key, dialog);
+            }
+            if (dialog instanceof Reusable) ((Reusable) dialog).refresh();
+            dialog.setLocationRelativeTo(dialog.getOwner());
+            dialog.setVisible(true);
         }
     }
 
+    /**
+     * Decodes and scales images off the event thread. Each scaled result is kept in
+     * memory and written to data/image-cache as a PNG keyed by source, size and the
+     * source's modification time, so later launches load the small file instead of
+     * decoding and scaling the original. Labels show a blank placeholder meanwhile.
+     */
+    static class ImageCache {
+        private static final Path CACHE_DIR = DATA_DIR.resolve("image-cache");
+        private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+
+        static JLabel label(String source, int width, int height) {
+            JLabel label = new JLabel(new ImageIcon(placeholder(width, height)));
+            load(source, width, height).thenAccept(image -> SwingUtilities.invokeLater(() -> {
+                label.setIcon(image != null ? new ImageIcon(image) : null);
+            }));
+            return label;
+        }
+
+        static CompletableFuture<BufferedImage> load(String source, int width, int height) {
+            return images.computeIfAbsent(source + '@' + width + 'x' + height,
+                    key -> CompletableFuture.supplyAsync(() -> loadScaled(Paths.get(source), width, height), QUERY_EXECUTOR));
+        }
+
+        private static BufferedImage loadScaled(Path source, int width, int height) {
+            try {
+                if (!Files.exists(source)) return null;
+                String name = source.getFileName() + "-" + width + "x" + height + "-"
+                        + Files.getLastModifiedTime(source).toMillis() + ".png";
+                Path cached = CACHE_DIR.resolve(name);
+                if (Files.exists(cached)) {
+                    BufferedImage image = ImageIO.read(cached.toFile());
+                    if (image != null) return image;
+                }
+                BufferedImage original = ImageIO.read(source.toFile());
+                if (original == null) return null;
+                BufferedImage scaled = scale(original, width, height);
+                store(scaled, cached);
+                return scaled;
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        // Halves the size until close, then draws the final step, which keeps
+        // bilinear filtering from dropping pixels on large reductions
+        private static BufferedImage scale(BufferedImage image, int width, int height) {
+            BufferedImage current = image;
+            int w = image.getWidth();
+            int h = image.getHeight();
+            do {
+                w = Math.max(width, w / 2);
+                h = Math.max(height, h / 2);
+                BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = next.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, w, h, null);
+                g.dispose();
+                current = next;
+            } while (w != width || h != height);
+            return current;
+        }
+
+        // The image is still usable when the cache cannot be written
+        private static void store(BufferedImage image, Path cached) {
+            try {
+                Files.createDirectories(CACHE_DIR);
+                Path tmp = Files.createTempFile(CACHE_DIR, "image", ".tmp");
+                ImageIO.write(image, "png", tmp.toFile());
+                Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                // Scaled again on the next launch
+            }
+        }
+
+        private static BufferedImage placeholder(int width, int height) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.dispose();
+            return image;
+        }
+    }
 
     static class HomeFrame extends JFrame {
         private final OrderManager manager;
+        private final DialogPool dialogs = new DialogPool();
 
         HomeFrame(OrderManager manager) {
             this.manager = manager;
@@ -159,17 +2830,17 @@ public class BurgerShopApp {
             leftPanel.setBackground(Color.WHITE);
 
             JLabel welcome = new JLabel("Welcome to Burgers", SwingConstants.CENTER);
-            welcome.setFont(new Font("SansSerif", Font.BOLD, 22));
-            welcome.setForeground(new Color(200, 150, 0));
+            welcome.setFont(Theme.BOLD_22);
+            welcome.setForeground(Theme.GOLD);
             welcome.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-            ImageIcon icon = new ImageIcon("assets/burgershop.jpg");
-            Image scaledImg = icon.getImage().getScaledInstance(350, 350, Image.SCALE_SMOOTH);
-            JLabel imgLabel = new JLabel(new ImageIcon(scaledImg));
+            JLabel imgLabel = ImageCache.label("assets/burgershop.jpg", 350, 350);
+            // View Orders shows the same picture smaller; have it ready before it opens
+            ImageCache.load("assets/burgershop.jpg", 300, 300);
             imgLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
             JLabel footer = new JLabel("@ICET", SwingConstants.CENTER);
-            footer.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            footer.setFont(Theme.PLAIN_12);
             footer.setAlignmentX(Component.CENTER_ALIGNMENT);
 
             leftPanel.add(Box.createVerticalStrut(30));
@@ -181,13 +2852,15 @@ public class BurgerShopApp {
             leftPanel.add(Box.createVerticalStrut(10));
 
             JPanel rightPanel = new JPanel();
-            rightPanel.setBackground(new Color(245,245,245));
+            rightPanel.setBackground(Theme.PANEL);
             rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.Y_AXIS));
 
             JButton placeOrderBtn = makeButton("Place Order");
             JButton searchBtn = makeButton("Search");
             JButton viewOrdersBtn = makeButton("View Orders");
             JButton updateOrderBtn = makeButton("Update Order Details");
+            JButton reportBtn = makeButton("Sales Report");
+            JButton importBtn = makeButton("Import Orders");
             JButton exitBtn = makeButton("Exit");
 
             rightPanel.add(Box.createVerticalGlue());
@@ -198,35 +2871,82 @@ public class BurgerShopApp {
             rightPanel.add(viewOrdersBtn);
             rightPanel.add(Box.createVerticalStrut(15));
             rightPanel.add(updateOrderBtn);
+            rightPanel.add(Box.createVerticalStrut(15));
+            rightPanel.add(reportBtn);
+            rightPanel.add(Box.createVerticalStrut(15));
+            rightPanel.add(importBtn);
             rightPanel.add(Box.createVerticalStrut(30));
             rightPanel.add(exitBtn);
             rightPanel.add(Box.createVerticalGlue());
 
-            placeOrderBtn.addActionListener(e -> new PlaceOrderDialog(this, manager).setVisible(true));
+            placeOrderBtn.addActionListener(e -> dialogs.open(PlaceOrderDialog.class, () -> new PlaceOrderDialog(this, manager)));
             searchBtn.addActionListener(e -> {
                 String[] options = {"Search Best Customer", "Search Order", "Search Customer"};
                 String choice = (String) JOptionPane.showInputDialog(this, "Choose search option:",
                         "Search Menu", JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
                 if (choice == null) return;
-                if (choice.equals("Search Best Customer")) new BestCustomerDialog(this, manager).setVisible(true);
-                if (choice.equals("Search Order")) new SearchOrderDialog(this, manager).setVisible(true);
-                if (choice.equals("Search Customer")) new SearchCustomerDialog(this, manager).setVisible(true);
+                if (choice.equals("Search Best Customer")) dialogs.open(BestCustomerDialog.class, () -> new BestCustomerDialog(this, manager));
+                if (choice.equals("Search Order")) dialogs.open(SearchOrderDialog.class, () -> new SearchOrderDialog(this, manager));
+                if (choice.equals("Search Customer")) dialogs.open(SearchCustomerDialog.class, () -> new SearchCustomerDialog(this, manager));
+            });
+            viewOrdersBtn.addActionListener(e -> dialogs.open(ViewOrdersDialog.class, () -> new ViewOrdersDialog(this, manager)));
+            updateOrderBtn.addActionListener(e -> dialogs.open(UpdateOrderDialog.class, () -> new UpdateOrderDialog(this, manager)));
+            reportBtn.addActionListener(e -> dialogs.open(SalesReportDialog.class, () -> new SalesReportDialog(this, manager)));
+            importBtn.addActionListener(e -> importOrders(importBtn));
+            exitBtn.addActionListener(e -> {
+                manager.close();
+                System.exit(0);
             });
-            viewOrdersBtn.addActionListener(e -> new ViewOrdersDialog(this, manager).setVisible(true));
-            updateOrderBtn.addActionListener(e -> new UpdateOrderDialog(this, manager).setVisible(true));
-            exitBtn.addActionListener(e -> System.exit(0));
 
             mainPanel.add(leftPanel);
             mainPanel.add(rightPanel);
             add(mainPanel);
         }
 
+        // Expects name,contact number,quantity per line; a header line is ignored
+        private void importOrders(JButton importBtn) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files", "csv"));
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            Path file = chooser.getSelectedFile().toPath();
+            importBtn.setEnabled(false);
+            IMPORT_EXECUTOR.execute(new SwingWorker<OrderImporter.Result, Void>() {
+                @Override
+                protected OrderImporter.Result doInBackground() throws IOException {
+                    return OrderImporter.importCsv(file, manager);
+                }
+
+                @Override
+                protected void done() {
+                    importBtn.setEnabled(true);
+                    try {
+                        OrderImporter.Result result = get();
+                        JOptionPane.showMessageDialog(HomeFrame.this,
+                            "Imported " + result.imported + " orders from " + file.getFileName() +
+                            (result.skipped > 0 ? "\nSkipped " + result.skipped + " invalid rows" : ""),
+                            "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof UncheckedIOException) {
+                            // The journal failed after at least one batch was applied
+                            showNotSaved(HomeFrame.this, "Orders were imported up to the failure",
+                                (UncheckedIOException) ex.getCause());
+                            return;
+                        }
+                        JOptionPane.showMessageDialog(HomeFrame.this, "Import failed: " + ex.getCause().getMessage(),
+                            "Import Failed", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            });
+        }
+
         private JButton makeButton(String text) {
             JButton b = new JButton(text);
             b.setAlignmentX(Component.CENTER_ALIGNMENT);
-            b.setBackground(new Color(220, 80, 70));
+            b.setBackground(Theme.ACCENT);
             b.setForeground(Color.WHITE);
-            b.setFont(new Font("SansSerif", Font.BOLD, 16));
+            b.setFont(Theme.BOLD_16);
             b.setFocusPainted(false);
             b.setMaximumSize(new Dimension(220, 40));
             b.setCursor(new Cursor(Cursor.HAND_CURSOR));
@@ -235,24 +2955,22 @@ public class BurgerShopApp {
     }
 
 
-    static class PlaceOrderDialog extends JDialog {
+    static class PlaceOrderDialog extends JDialog implements Reusable {
         private final OrderManager manager;
         private JTextField tfCustomerID;
         private JTextField tfQuantity;
         private JTextField tfCustomerName;
+        private JTextField tfPhone;
         private JLabel lblOrderID;
         private JLabel lblTotal;
-        private final String preGeneratedOrderID;
-        private final String preGeneratedCustomerID;
+        private String preGeneratedOrderID;
+        private String preGeneratedCustomerID;
 
         PlaceOrderDialog(JFrame parent, OrderManager manager) {
             super(parent, "Place Order", true);
             this.manager = manager;
 
-            preGeneratedOrderID = String.format("O%03d", manager.orderCounter + 1);
-            preGeneratedCustomerID = String.format("C%03d", manager.customerCounter + 1);
-
-            setSize(500, 450);
+            setSize(500, 490);
             setLocationRelativeTo(parent);
             setResizable(false);
             initUI();
@@ -262,10 +2980,10 @@ public class BurgerShopApp {
             setLayout(new BorderLayout());
 
             JPanel headerPanel = new JPanel();
-            headerPanel.setBackground(new Color(200, 80, 70));
+            headerPanel.setBackground(Theme.HEADER);
             headerPanel.setPreferredSize(new Dimension(500, 60));
             JLabel headerLabel = new JLabel("Place Order", SwingConstants.CENTER);
-            headerLabel.setFont(new Font("SansSerif", Font.BOLD, 20));
+            headerLabel.setFont(Theme.BOLD_20);
             headerLabel.setForeground(Color.WHITE);
             headerPanel.add(headerLabel);
             add(headerPanel, BorderLayout.NORTH);
@@ -280,25 +2998,43 @@ public class BurgerShopApp {
             gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
             mainPanel.add(new JLabel("Order Id :"), gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
-            lblOrderID = new JLabel(preGeneratedOrderID);
-            lblOrderID.setFont(new Font("SansSerif", Font.BOLD, 14));
+            lblOrderID = new JLabel();
+            lblOrderID.setFont(Theme.BOLD_14);
             mainPanel.add(lblOrderID, gbc);
 
             gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
             mainPanel.add(new JLabel("Customer Id :"), gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
-            tfCustomerID = new JTextField(preGeneratedCustomerID);
+            tfCustomerID = new JTextField();
             tfCustomerID.setEditable(false);
-            tfCustomerID.setBackground(new Color(240, 240, 240));
+            tfCustomerID.setBackground(Theme.READ_ONLY);
             mainPanel.add(tfCustomerID, gbc);
 
             gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
             mainPanel.add(new JLabel("Customer Name :"), gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
             tfCustomerName = new JTextField(20);
-            tfCustomerName.setFont(new Font("SansSerif", Font.PLAIN, 15));
+            tfCustomerName.setFont(Theme.PLAIN_15);
             mainPanel.add(tfCustomerName, gbc);
 
+            gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
+            mainPanel.add(new JLabel("Contact No :"), gbc);
+            gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
+            tfPhone = new JTextField(20);
+            tfPhone.setFont(Theme.PLAIN_15);
+            mainPanel.add(tfPhone, gbc);
+
+            // Show the existing ID as soon as a repeat customer is recognised
+            KeyAdapter customerLookup = new KeyAdapter() {
+                @Override
+                public void keyReleased(KeyEvent e) {
+                    Customer existing = manager.findCustomer(tfCustomerName.getText(), tfPhone.getText());
+                    tfCustomerID.setText(existing != null ? existing.getCustomerID() : preGeneratedCustomerID);
+                }
+            };
+            tfCustomerName.addKeyListener(customerLookup);
+            tfPhone.addKeyListener(customerLookup);
+
             gbc.gridx = 0; gbc.gridy = row; gbc.gridwidth = 2;
             mainPanel.add(new JSeparator(), gbc);
             gbc.gridwidth = 1;
@@ -306,11 +3042,11 @@ public class BurgerShopApp {
 
             gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
             JLabel lblQtyText = new JLabel("Burger QTY :");
-            lblQtyText.setFont(new Font("SansSerif", Font.PLAIN, 14));
+            lblQtyText.setFont(Theme.PLAIN_14);
             mainPanel.add(lblQtyText, gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
             tfQuantity = new JTextField(15);
-            tfQuantity.setFont(new Font("Arial", Font.PLAIN, 18));
+            tfQuantity.setFont(Theme.QUANTITY);
             tfQuantity.setPreferredSize(new Dimension(200, 35));
             tfQuantity.setEditable(true);
             tfQuantity.setEnabled(true);
@@ -345,15 +3081,15 @@ public class BurgerShopApp {
             mainPanel.add(new JLabel("Order Status :"), gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
             JLabel lblStatus = new JLabel("Pending.");
-            lblStatus.setFont(new Font("SansSerif", Font.PLAIN, 14));
+            lblStatus.setFont(Theme.PLAIN_14);
             mainPanel.add(lblStatus, gbc);
 
             gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
             mainPanel.add(new JLabel("NET Total :"), gbc);
             gbc.gridx = 1; gbc.gridy = row++; gbc.weightx = 1.0;
             lblTotal = new JLabel("0.00");
-            lblTotal.setFont(new Font("SansSerif", Font.BOLD, 16));
-            lblTotal.setForeground(new Color(220, 80, 70));
+            lblTotal.setFont(Theme.BOLD_16);
+            lblTotal.setForeground(Theme.ACCENT);
             mainPanel.add(lblTotal, gbc);
 
             gbc.gridx = 0; gbc.gridy = row; gbc.gridwidth = 2;
@@ -367,29 +3103,29 @@ public class BurgerShopApp {
             buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 20, 0));
 
             JButton placeBtn = new JButton("Place Order");
-            placeBtn.setBackground(new Color(76, 175, 80));
+            placeBtn.setBackground(Theme.CONFIRM);
             placeBtn.setForeground(Color.WHITE);
-            placeBtn.setFont(new Font("SansSerif", Font.BOLD, 14));
+            placeBtn.setFont(Theme.BOLD_14);
             placeBtn.setPreferredSize(new Dimension(120, 35));
             placeBtn.addActionListener(e -> placeOrder());
 
             JButton backBtn = new JButton("Back to home Page");
-            backBtn.setBackground(new Color(220, 80, 70));
+            backBtn.setBackground(Theme.ACCENT);
             backBtn.setForeground(Color.WHITE);
-            backBtn.setFont(new Font("SansSerif", Font.BOLD, 14));
+            backBtn.setFont(Theme.BOLD_14);
             backBtn.setPreferredSize(new Dimension(160, 35));
-            backBtn.addActionListener(e -> dispose());
+            backBtn.addActionListener(e -> setVisible(false));
 
             JButton cancelBtn = new JButton("Cancel");
-            cancelBtn.setBackground(new Color(220, 80, 70));
+            cancelBtn.setBackground(Theme.ACCENT);
             cancelBtn.setForeground(Color.WHITE);
-            cancelBtn.setFont(new Font("SansSerif", Font.BOLD, 14));
+            cancelBtn.setFont(Theme.BOLD_14);
             cancelBtn.setPreferredSize(new Dimension(100, 35));
             cancelBtn.addActionListener(e -> {
                 int result = JOptionPane.showConfirmDialog(this,
                     "Are you sure you want to cancel?", "Cancel Order",
                     JOptionPane.YES_NO_OPTION);
-                if (result == JOptionPane.YES_OPTION) dispose();
+                if (result == JOptionPane.YES_OPTION) setVisible(false);
             });
 
             buttonPanel.add(placeBtn);
@@ -397,16 +3133,27 @@ public class BurgerShopApp {
             buttonPanel.add(cancelBtn);
             add(buttonPanel, BorderLayout.SOUTH);
 
-            addWindowListener(new WindowAdapter() {
+            addComponentListener(new ComponentAdapter() {
                 @Override
-                public void windowOpened(WindowEvent e) {
+                public void componentShown(ComponentEvent e) {
                     SwingUtilities.invokeLater(() -> {
                         tfQuantity.requestFocusInWindow();
                         tfQuantity.getCaret().setVisible(true);
                     });
                 }
             });
+        }
 
+        // IDs are peeked again because other tills may have placed orders meanwhile
+        @Override
+        public void refresh() {
+            preGeneratedOrderID = manager.peekNextOrderID();
+            preGeneratedCustomerID = manager.peekNextCustomerID();
+            lblOrderID.setText(preGeneratedOrderID);
+            tfCustomerID.setText(preGeneratedCustomerID);
+            tfCustomerName.setText("");
+            tfPhone.setText("");
+            tfQuantity.setText("");
             calculateTotal();
         }
 
@@ -419,7 +3166,7 @@ public class BurgerShopApp {
                 }
                 int q = Integer.parseInt(text);
                 if (q < 0) q = 0;
-                double total = q * 500.0;
+                double total = q * (double) Order.UNIT_PRICE;
                 lblTotal.setText(String.format("%.2f", total));
             } catch (NumberFormatException ex) {
                 lblTotal.setText("0.00");
@@ -446,25 +3193,31 @@ public class BurgerShopApp {
                     tfQuantity.requestFocus();
                     return;
                 }
-                Order o = manager.addOrder(nameText, q);
+                Order o = manager.addOrder(nameText, tfPhone.getText().trim(), q);
                 JOptionPane.showMessageDialog(this,
                     "Order Placed Successfully!\n\n" +
                     "Order ID: " + o.getOrderID() + "\n" +
                     "Customer ID: " + o.getCustomer().getCustomerID() + "\n" +
                     "Customer Name: " + o.getCustomer().getName() + "\n" +
+                    "Contact No: " + o.getCustomer().getPhone() + "\n" +
                     "Quantity: " + q + " burgers\n" +
                     "Total: Rs. " + o.getTotal(),
                     "Order Confirmation", JOptionPane.INFORMATION_MESSAGE);
-                dispose();
+                setVisible(false);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid number for quantity!");
                 tfQuantity.requestFocus();
+            } catch (UncheckedIOException ex) {
+                showNotSaved(this, "The order was placed", ex);
+                setVisible(false);
             }
         }
     }
 
-    static class BestCustomerDialog extends JDialog {
+    static class BestCustomerDialog extends JDialog implements Reusable {
         private final OrderManager manager;
+        private final CustomerTotalTableModel model = new CustomerTotalTableModel();
+        private RowLoader<?> loader;
 
         BestCustomerDialog(JFrame parent, OrderManager manager) {
             super(parent, "Search Best Customers", true);
@@ -475,37 +3228,25 @@ public class BurgerShopApp {
             setLayout(new BorderLayout());
 
             JPanel headerPanel = new JPanel();
-            headerPanel.setBackground(new Color(200, 80, 70));
+            headerPanel.setBackground(Theme.HEADER);
             headerPanel.setPreferredSize(new Dimension(650, 60));
             JLabel headerLabel = new JLabel("Search Best Customers", SwingConstants.CENTER);
-            headerLabel.setFont(new Font("SansSerif", Font.BOLD, 22));
+            headerLabel.setFont(Theme.BOLD_22);
             headerLabel.setForeground(Color.WHITE);
             headerPanel.add(headerLabel);
             add(headerPanel, BorderLayout.NORTH);
 
-            String[] columns = {"Customer ID", "Name", "Total"};
-            DefaultTableModel model = new DefaultTableModel(columns, 0) {
-                @Override
-                public boolean isCellEditable(int row, int column) { return false; }
-            };
             JTable table = new JTable(model);
-            table.setFont(new Font("SansSerif", Font.PLAIN, 15));
-            table.getTableHeader().setFont(new Font("SansSerif", Font.BOLD, 15));
+            table.getColumnModel().getColumn(2).setCellRenderer(new MoneyRenderer("%.2f"));
+            installSorter(table, model);
+            table.setFont(Theme.PLAIN_15);
+            table.getTableHeader().setFont(Theme.BOLD_15);
             table.setRowHeight(28);
             table.setBackground(Color.WHITE);
             table.setShowGrid(true);
-            table.setGridColor(new Color(220,220,220));
-
-            List<Map.Entry<Customer, Integer>> customers = manager.getCustomersByTotalDesc();
-            for (Map.Entry<Customer, Integer> entry : customers) {
-                Customer customer = entry.getKey();
-                Integer total = entry.getValue();
-                model.addRow(new Object[]{
-                        customer.getCustomerID(),
-                        customer.getName(),
-                        String.format("%.2f", (double)total)
-                });
-            }
+            table.setGridColor(Theme.GRID);
+
+            cancelOnClose(this, () -> loader);
             JScrollPane scrollPane = new JScrollPane(table);
             scrollPane.setBorder(BorderFactory.createEmptyBorder(20, 30, 10, 30));
             add(scrollPane, BorderLayout.CENTER);
@@ -513,36 +3254,137 @@ public class BurgerShopApp {
             JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
             bottomPanel.setBackground(Color.WHITE);
             JButton backBtn = new JButton("Back");
-            backBtn.setBackground(new Color(220, 80, 70));
+            backBtn.setBackground(Theme.ACCENT);
+            backBtn.setForeground(Color.WHITE);
+            backBtn.setFont(Theme.BOLD_15);
+            backBtn.setFocusPainted(false);
+            backBtn.setPreferredSize(new Dimension(100, 35));
+            backBtn.addActionListener(e -> setVisible(false));
+            bottomPanel.add(backBtn);
+            add(bottomPanel, BorderLayout.SOUTH);
+        }
+
+        @Override
+        public void refresh() {
+            RowLoader.cancel(loader);
+            loader = new RowLoader<>(manager::getCustomersByTotalDesc, model, count -> { }).start();
+        }
+    }
+
+
+    static class SalesReportDialog extends JDialog implements Reusable {
+        private static final int TOP_CUSTOMERS = 10;
+        private final OrderManager manager;
+        private final JTextArea reportArea = new JTextArea();
+        private SwingWorker<SalesReport, Void> worker;
+
+        SalesReportDialog(JFrame parent, OrderManager manager) {
+            super(parent, "Sales Report", true);
+            this.manager = manager;
+            setSize(560, 520);
+            setLocationRelativeTo(parent);
+            setResizable(false);
+            setLayout(new BorderLayout());
+
+            JPanel headerPanel = new JPanel();
+            headerPanel.setBackground(Theme.HEADER);
+            headerPanel.setPreferredSize(new Dimension(560, 60));
+            JLabel headerLabel = new JLabel("Sales Report", SwingConstants.CENTER);
+            headerLabel.setFont(Theme.BOLD_22);
+            headerLabel.setForeground(Color.WHITE);
+            headerPanel.add(headerLabel);
+            add(headerPanel, BorderLayout.NORTH);
+
+            reportArea.setEditable(false);
+            reportArea.setFont(Theme.MONO_14);
+            JScrollPane scrollPane = new JScrollPane(reportArea);
+            scrollPane.setBorder(BorderFactory.createEmptyBorder(20, 30, 10, 30));
+            add(scrollPane, BorderLayout.CENTER);
+
+            cancelOnClose(this, () -> worker);
+
+            JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            bottomPanel.setBackground(Color.WHITE);
+            JButton backBtn = new JButton("Back");
+            backBtn.setBackground(Theme.ACCENT);
             backBtn.setForeground(Color.WHITE);
-            backBtn.setFont(new Font("SansSerif", Font.BOLD, 15));
+            backBtn.setFont(Theme.BOLD_15);
             backBtn.setFocusPainted(false);
             backBtn.setPreferredSize(new Dimension(100, 35));
-            backBtn.addActionListener(e -> dispose());
+            backBtn.addActionListener(e -> setVisible(false));
             bottomPanel.add(backBtn);
             add(bottomPanel, BorderLayout.SOUTH);
         }
+
+        @Override
+        public void refresh() {
+            if (worker != null) worker.cancel(true);
+            reportArea.setText("Building report...");
+            worker = new SwingWorker<SalesReport, Void>() {
+                @Override
+                protected SalesReport doInBackground() {
+                    return manager.buildSalesReport(TOP_CUSTOMERS);
+                }
+
+                @Override
+                protected void done() {
+                    if (isCancelled()) return;
+                    try {
+                        reportArea.setText(format(get()));
+                        reportArea.setCaretPosition(0);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        reportArea.setText("Could not build report: " + ex.getCause());
+                    }
+                }
+            };
+            QUERY_EXECUTOR.execute(worker);
+        }
+
+        private static String format(SalesReport report) {
+            StringBuilder text = new StringBuilder();
+            text.append("Orders             : ").append(report.orderCount).append('\n');
+            text.append("Revenue (Rs.)      : ").append(report.getTotalRevenue()).append('\n');
+            text.append("Cancellation rate  : ")
+                .append(String.format("%.1f%%", report.getCancellationRate() * 100)).append("\n\n");
+            text.append("By status\n");
+            for (OrderStatus status : OrderStatus.values()) {
+                text.append(String.format("  %-12s %10d orders  Rs. %12d%n", status.toString().toLowerCase(),
+                        report.ordersByStatus.get(status), report.revenueByStatus.get(status)));
+            }
+            text.append("\nBurgers per order\n");
+            report.quantityDistribution.forEach((qty, count) ->
+                    text.append(String.format("  %5d  %10d orders%n", qty, count)));
+            text.append("\nTop customers\n");
+            for (Map.Entry<Customer, Long> e : report.topCustomers) {
+                text.append(String.format("  %-8s %-20s Rs. %12d%n", e.getKey().getCustomerID(),
+                        e.getKey().getName(), e.getValue()));
+            }
+            return text.toString();
+        }
     }
 
 
-    static class SearchOrderDialog extends JDialog {
+    static class SearchOrderDialog extends JDialog implements Reusable {
         private final OrderManager manager;
         private JTextField tfOrderID;
         private JTextArea resultArea;
+        private JPanel detailsPanel;
 
         SearchOrderDialog(JFrame parent, OrderManager manager) {
             super(parent, "Search Order Details", true);
             this.manager = manager;
-            setSize(500, 400);
+            setSize(500, 520);
             setLocationRelativeTo(parent);
             setResizable(false);
             setLayout(new BorderLayout());
 
             JPanel headerPanel = new JPanel();
-            headerPanel.setBackground(new Color(200, 80, 70));
+            headerPanel.setBackground(Theme.HEADER);
             headerPanel.setPreferredSize(new Dimension(500, 60));
             JLabel headerLabel = new JLabel("Search Order Details", SwingConstants.CENTER);
-            headerLabel.setFont(new Font("SansSerif", Font.BOLD, 22));
+            headerLabel.setFont(Theme.BOLD_22);
             headerLabel.setForeground(Color.WHITE);
             headerPanel.add(headerLabel);
             add(headerPanel, BorderLayout.NORTH);
@@ -556,25 +3398,37 @@ public class BurgerShopApp {
             gbc.fill = GridBagConstraints.HORIZONTAL;
 
             gbc.gridx = 0; gbc.gridy = 0; gbc.weightx = 0;
-            JLabel lblOrderId = new JLabel("Enter OrderID :");
-            lblOrderId.setFont(new Font("SansSerif", Font.PLAIN, 15));
+            JLabel lblOrderId = new JLabel("Order ID / Name :");
+            lblOrderId.setFont(Theme.PLAIN_15);
             contentPanel.add(lblOrderId, gbc);
             gbc.gridx = 1; gbc.weightx = 1.0;
             tfOrderID = new JTextField(10);
-            tfOrderID.setFont(new Font("SansSerif", Font.PLAIN, 15));
+            tfOrderID.setFont(Theme.PLAIN_15);
             contentPanel.add(tfOrderID, gbc);
 
             gbc.gridx = 2; gbc.weightx = 0;
             JButton searchBtn = new JButton("Search");
-            searchBtn.setBackground(new Color(76, 175, 80));
+            searchBtn.setBackground(Theme.CONFIRM);
             searchBtn.setForeground(Color.WHITE);
-            searchBtn.setFont(new Font("SansSerif", Font.BOLD, 13));
+            searchBtn.setFont(Theme.BOLD_13);
             searchBtn.setFocusPainted(false);
             searchBtn.addActionListener(e -> searchOrder());
             contentPanel.add(searchBtn, gbc);
 
             gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 3; gbc.weightx = 1.0;
-            JPanel detailsPanel = new JPanel();
+            JList<Order> matches = typeAhead(tfOrderID,
+                    text -> manager.searchOrdersByPrefix(text, TYPE_AHEAD_LIMIT),
+                    o -> o.getOrderID() + "   " + o.getCustomer().getName() + "   (" + o.getStatus().toString().toLowerCase() + ")");
+            matches.setVisibleRowCount(5);
+            matches.addListSelectionListener(e -> {
+                if (!e.getValueIsAdjusting() && matches.getSelectedValue() != null) {
+                    addOrderDetailsLabels(detailsPanel, matches.getSelectedValue());
+                }
+            });
+            contentPanel.add(new JScrollPane(matches), gbc);
+
+            gbc.gridy = 2;
+            detailsPanel = new JPanel();
             detailsPanel.setLayout(new BoxLayout(detailsPanel, BoxLayout.Y_AXIS));
             detailsPanel.setBackground(Color.WHITE);
             detailsPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 10, 10));
@@ -586,25 +3440,28 @@ public class BurgerShopApp {
             JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
             bottomPanel.setBackground(Color.WHITE);
             JButton backBtn = new JButton("Back");
-            backBtn.setBackground(new Color(220, 80, 70));
+            backBtn.setBackground(Theme.ACCENT);
             backBtn.setForeground(Color.WHITE);
-            backBtn.setFont(new Font("SansSerif", Font.BOLD, 15));
+            backBtn.setFont(Theme.BOLD_15);
             backBtn.setFocusPainted(false);
             backBtn.setPreferredSize(new Dimension(100, 35));
-            backBtn.addActionListener(e -> dispose());
+            backBtn.addActionListener(e -> setVisible(false));
             bottomPanel.add(backBtn);
             add(bottomPanel, BorderLayout.SOUTH);
+        }
 
-            this.detailsPanel = detailsPanel;
+        @Override
+        public void refresh() {
+            tfOrderID.setText("");
+            addOrderDetailsLabels(detailsPanel, null);
         }
 
-        private JPanel detailsPanel;
         private void addOrderDetailsLabels(JPanel panel, Order order) {
             panel.removeAll();
             panel.setAlignmentX(Component.LEFT_ALIGNMENT);
-            Font labelFont = new Font("SansSerif", Font.PLAIN, 15);
+            Font labelFont = Theme.PLAIN_15;
             if (order == null) {
-                JLabel info = new JLabel("Enter an Order ID and click Search.");
+                JLabel info = new JLabel("Type an Order ID or customer name, or pick a match.");
                 info.setFont(labelFont);
                 panel.add(info);
             } else {
@@ -642,8 +3499,8 @@ public class BurgerShopApp {
             if (order == null) {
                 addOrderDetailsLabels(detailsPanel, null);
                 JLabel notFound = new JLabel("Order not found!");
-                notFound.setFont(new Font("SansSerif", Font.BOLD, 15));
-                notFound.setForeground(new Color(220, 80, 70));
+                notFound.setFont(Theme.BOLD_15);
+                notFound.setForeground(Theme.ACCENT);
                 detailsPanel.add(Box.createVerticalStrut(10));
                 detailsPanel.add(notFound);
                 detailsPanel.revalidate();
@@ -655,44 +3512,72 @@ public class BurgerShopApp {
     }
 
 
-    static class SearchCustomerDialog extends JDialog {
+    static class SearchCustomerDialog extends JDialog implements Reusable {
         private final OrderManager manager;
         private JTextField tfCustomerID;
+        private final OrderTableModel model = new OrderTableModel(
+                new String[]{"Order ID", "Quantity", "Status", "Total"},
+                OrderColumn.ORDER_ID, OrderColumn.QUANTITY, OrderColumn.STATUS, OrderColumn.TOTAL);
+        private final LiveOrderFeed feed;
+        private RowLoader<?> loader;
 
         SearchCustomerDialog(JFrame parent, OrderManager manager) {
             super(parent, "Search Customer", true);
             this.manager = manager;
-            setSize(600, 400);
+            feed = new LiveOrderFeed(this, manager, model);
+            setSize(600, 480);
             setLocationRelativeTo(parent);
             initUI();
+            cancelOnClose(this, () -> loader);
         }
 
         private void initUI() {
             setLayout(new BorderLayout());
 
             JPanel inputPanel = new JPanel(new FlowLayout());
-            inputPanel.add(new JLabel("Customer ID:"));
-            tfCustomerID = new JTextField(10);
+            inputPanel.add(new JLabel("Customer ID / Name:"));
+            tfCustomerID = new JTextField(14);
             inputPanel.add(tfCustomerID);
 
             JButton searchBtn = new JButton("Search");
             searchBtn.addActionListener(e -> searchCustomer());
             inputPanel.add(searchBtn);
 
-            add(inputPanel, BorderLayout.NORTH);
+            JList<Customer> matches = typeAhead(tfCustomerID,
+                    text -> manager.searchCustomersByPrefix(text, TYPE_AHEAD_LIMIT),
+                    c -> c.getCustomerID() + "   " + c.getName() + (c.getPhone().isEmpty() ? "" : "   " + c.getPhone()));
+            matches.setVisibleRowCount(4);
+            matches.addListSelectionListener(e -> {
+                Customer c = matches.getSelectedValue();
+                if (!e.getValueIsAdjusting() && c != null) loadOrders(c.getCustomerNumber(), c.getCustomerID());
+            });
+
+            JPanel searchPanel = new JPanel(new BorderLayout());
+            searchPanel.add(inputPanel, BorderLayout.NORTH);
+            searchPanel.add(new JScrollPane(matches), BorderLayout.CENTER);
+            add(searchPanel, BorderLayout.NORTH);
 
-            String[] columns = {"Order ID", "Quantity", "Status", "Total"};
-            DefaultTableModel model = new DefaultTableModel(columns, 0);
             JTable table = new JTable(model);
+            table.getColumnModel().getColumn(3).setCellRenderer(new MoneyRenderer("Rs. %.0f"));
+            installSorter(table, model);
             add(new JScrollPane(table), BorderLayout.CENTER);
 
             JButton closeBtn = new JButton("Close");
-            closeBtn.addActionListener(e -> dispose());
+            closeBtn.addActionListener(e -> setVisible(false));
             JPanel buttonPanel = new JPanel();
             buttonPanel.add(closeBtn);
             add(buttonPanel, BorderLayout.SOUTH);
         }
 
+        @Override
+        public void refresh() {
+            RowLoader.cancel(loader);
+            tfCustomerID.setText("");
+            model.setFilter(o -> false);
+            model.clear();
+            feed.start();
+        }
+
         private void searchCustomer() {
             String customerID = tfCustomerID.getText().trim();
             if (customerID.isEmpty()) {
@@ -700,28 +3585,24 @@ public class BurgerShopApp {
                 return;
             }
 
-            List<Order> orders = manager.searchCustomerOrders(customerID);
-            DefaultTableModel model = (DefaultTableModel) ((JTable) ((JScrollPane) getContentPane().getComponent(1)).getViewport().getView()).getModel();
-            model.setRowCount(0);
+            loadOrders(OrderManager.parseCustomerID(customerID), customerID);
+        }
 
-            if (orders.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "No orders found for Customer ID: " + customerID);
-            } else {
-                for (Order order : orders) {
-                    model.addRow(new Object[]{
-                            order.getOrderID(),
-                            order.getQuantity(),
-                            order.getStatus(),
-                            "Rs. " + order.getTotal()
-                    });
+        private void loadOrders(long customerNumber, String customerID) {
+            RowLoader.cancel(loader);
+            model.setFilter(o -> o.getCustomer().getCustomerNumber() == customerNumber);
+            loader = new RowLoader<>(() -> manager.searchCustomerOrders(customerNumber), model, count -> {
+                if (count == 0) {
+                    JOptionPane.showMessageDialog(this, "No orders found for Customer ID: " + customerID);
                 }
-            }
+            }).start();
         }
     }
 
 
     static class ViewOrdersDialog extends JDialog {
         private final OrderManager manager;
+        private final DialogPool dialogs = new DialogPool();
 
         ViewOrdersDialog(JFrame parent, OrderManager manager) {
             super(parent, "View Orders", true);
@@ -737,15 +3618,13 @@ public class BurgerShopApp {
             leftPanel.setLayout(new BoxLayout(leftPanel, BoxLayout.Y_AXIS));
             leftPanel.setBackground(Color.WHITE);
             JLabel welcome = new JLabel("Welcome to Burgers", SwingConstants.CENTER);
-            welcome.setFont(new Font("SansSerif", Font.BOLD, 28));
-            welcome.setForeground(new Color(255, 204, 0));
+            welcome.setFont(Theme.BOLD_28);
+            welcome.setForeground(Theme.YELLOW);
             welcome.setAlignmentX(Component.CENTER_ALIGNMENT);
-            ImageIcon icon = new ImageIcon("assets/burgershop.jpg");
-            Image scaledImg = icon.getImage().getScaledInstance(300, 300, Image.SCALE_SMOOTH);
-            JLabel imgLabel = new JLabel(new ImageIcon(scaledImg));
+            JLabel imgLabel = ImageCache.label("assets/burgershop.jpg", 300, 300);
             imgLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
             JLabel footer = new JLabel("@ICET", SwingConstants.CENTER);
-            footer.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            footer.setFont(Theme.PLAIN_12);
             footer.setAlignmentX(Component.CENTER_ALIGNMENT);
             leftPanel.add(Box.createVerticalStrut(30));
             leftPanel.add(welcome);
@@ -757,19 +3636,19 @@ public class BurgerShopApp {
 
             JPanel rightPanel = new JPanel();
             rightPanel.setLayout(new BorderLayout());
-            rightPanel.setBackground(new Color(245,245,245));
+            rightPanel.setBackground(Theme.PANEL);
 
             JPanel headerPanel = new JPanel();
-            headerPanel.setBackground(new Color(200, 80, 70));
+            headerPanel.setBackground(Theme.HEADER);
             headerPanel.setPreferredSize(new Dimension(400, 60));
             JLabel headerLabel = new JLabel("View Orders", SwingConstants.CENTER);
-            headerLabel.setFont(new Font("SansSerif", Font.BOLD, 24));
+            headerLabel.setFont(Theme.BOLD_24);
             headerLabel.setForeground(Color.WHITE);
             headerPanel.add(headerLabel);
             rightPanel.add(headerPanel, BorderLayout.NORTH);
 
             JPanel btnPanel = new JPanel();
-            btnPanel.setBackground(new Color(245,245,245));
+            btnPanel.setBackground(Theme.PANEL);
             btnPanel.setLayout(new BoxLayout(btnPanel, BoxLayout.Y_AXIS));
             btnPanel.add(Box.createVerticalGlue());
             JButton deliveredBtn = makeOrderStatusButton("Delivered Orders");
@@ -784,15 +3663,15 @@ public class BurgerShopApp {
             rightPanel.add(btnPanel, BorderLayout.CENTER);
 
             JPanel exitPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-            exitPanel.setBackground(new Color(245,245,245));
+            exitPanel.setBackground(Theme.PANEL);
             JButton exitBtn = new JButton("Exit");
-            exitBtn.setBackground(new Color(220, 80, 70));
+            exitBtn.setBackground(Theme.ACCENT);
             exitBtn.setForeground(Color.WHITE);
-            exitBtn.setFont(new Font("SansSerif", Font.BOLD, 16));
+            exitBtn.setFont(Theme.BOLD_16);
             exitBtn.setFocusPainted(false);
             exitBtn.setPreferredSize(new Dimension(120, 40));
-            exitBtn.setBorder(BorderFactory.createLineBorder(new Color(220, 80, 70), 2, true));
-            exitBtn.addActionListener(e -> dispose());
+            exitBtn.setBorder(BorderFactory.createLineBorder(Theme.ACCENT, 2, true));
+            exitBtn.addActionListener(e -> setVisible(false));
             exitPanel.add(exitBtn);
             rightPanel.add(exitPanel, BorderLayout.SOUTH);
 
@@ -801,85 +3680,104 @@ public class BurgerShopApp {
             add(mainPanel, BorderLayout.CENTER);
 
 
-            deliveredBtn.addActionListener(e -> new OrderListDialog(SwingUtilities.getWindowAncestor(this), manager, OrderStatus.DELIVERED).setVisible(true));
-            processingBtn.addActionListener(e -> new OrderListDialog(SwingUtilities.getWindowAncestor(this), manager, OrderStatus.PREPARING).setVisible(true));
-            canceledBtn.addActionListener(e -> new OrderListDialog(SwingUtilities.getWindowAncestor(this), manager, OrderStatus.CANCELLED).setVisible(true));
+            deliveredBtn.addActionListener(e -> openOrderList(OrderStatus.DELIVERED));
+            processingBtn.addActionListener(e -> openOrderList(OrderStatus.PREPARING));
+            canceledBtn.addActionListener(e -> openOrderList(OrderStatus.CANCELLED));
+        }
+
+        private void openOrderList(OrderStatus status) {
+            dialogs.open(status, () -> new OrderListDialog(this, manager, status));
         }
 
         private JButton makeOrderStatusButton(String text) {
             JButton btn = new JButton(text);
-            btn.setBackground(new Color(220, 80, 70));
+            btn.setBackground(Theme.ACCENT);
             btn.setForeground(Color.WHITE);
-            btn.setFont(new Font("SansSerif", Font.BOLD, 18));
+            btn.setFont(Theme.BOLD_18);
             btn.setFocusPainted(false);
             btn.setPreferredSize(new Dimension(260, 50));
             btn.setMaximumSize(new Dimension(260, 50));
-            btn.setBorder(BorderFactory.createLineBorder(new Color(220, 80, 70), 2, true));
+            btn.setBorder(BorderFactory.createLineBorder(Theme.ACCENT, 2, true));
             btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
             return btn;
         }
     }
 
-    static class OrderListDialog extends JDialog {
+    static class OrderListDialog extends JDialog implements Reusable {
+        private final OrderManager manager;
+        private final OrderStatus status;
+        private final OrderTableModel model = new OrderTableModel(
+                new String[]{"Order Id", "Customer Id", "Name", "Order QTY", "Total"},
+                OrderColumn.ORDER_ID, OrderColumn.CUSTOMER_ID, OrderColumn.NAME,
+                OrderColumn.QUANTITY, OrderColumn.TOTAL);
+        private final JTextField tfFilter = new JTextField(15);
+        private final LiveOrderFeed feed;
+        private TableRowSorter<AbstractTableModel> sorter;
+        private RowLoader<?> loader;
+
         OrderListDialog(Window parent, OrderManager manager, OrderStatus status) {
             super(parent, status==OrderStatus.PREPARING?"Processing Orders":status==OrderStatus.DELIVERED?"Delivered Orders":"Canceled Orders", ModalityType.APPLICATION_MODAL);
+            this.manager = manager;
+            this.status = status;
+            model.setFilter(o -> o.getStatus() == status);
+            feed = new LiveOrderFeed(this, manager, model);
             setSize(800, 420);
             setLocationRelativeTo(parent);
             setResizable(false);
             setLayout(new BorderLayout());
 
             JPanel headerPanel = new JPanel();
-            headerPanel.setBackground(new Color(200, 80, 70));
+            headerPanel.setBackground(Theme.HEADER);
             headerPanel.setPreferredSize(new Dimension(800, 60));
             JLabel headerLabel = new JLabel(getTitle(), SwingConstants.CENTER);
-            headerLabel.setFont(new Font("SansSerif", Font.BOLD, 22));
+            headerLabel.setFont(Theme.BOLD_22);
             headerLabel.setForeground(Color.WHITE);
             headerPanel.add(headerLabel);
             add(headerPanel, BorderLayout.NORTH);
 
-            String[] columns = {"Order Id", "Customer Id", "Name", "Order QTY", "Total"};
-            DefaultTableModel model = new DefaultTableModel(columns, 0) {
-                @Override
-                public boolean isCellEditable(int row, int column) { return false; }
-            };
             JTable table = new JTable(model);
-            table.setFont(new Font("SansSerif", Font.PLAIN, 15));
-            table.getTableHeader().setFont(new Font("SansSerif", Font.BOLD, 15));
+            table.getColumnModel().getColumn(4).setCellRenderer(new MoneyRenderer("%.2f"));
+            sorter = installSorter(table, model);
+            table.setFont(Theme.PLAIN_15);
+            table.getTableHeader().setFont(Theme.BOLD_15);
             table.setRowHeight(28);
             table.setBackground(Color.WHITE);
             table.setShowGrid(true);
-            table.setGridColor(new Color(220,220,220));
-            List<Order> orders = manager.viewOrdersByStatus(status);
-            for (Order order : orders) {
-                model.addRow(new Object[]{
-                    order.getOrderID(),
-                    order.getCustomer().getCustomerID(),
-                    order.getCustomer().getName(),
-                    order.getQuantity(),
-                    String.format("%.2f", (double)order.getTotal())
-                });
-            }
+            table.setGridColor(Theme.GRID);
+            cancelOnClose(this, () -> loader);
             JScrollPane scrollPane = new JScrollPane(table);
             scrollPane.setBorder(BorderFactory.createEmptyBorder(20, 30, 10, 30));
             add(scrollPane, BorderLayout.CENTER);
-            // Bottom panel with Back button
+            // Bottom panel with filter field and Back button
             JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
             bottomPanel.setBackground(Color.WHITE);
+            bottomPanel.add(new JLabel("Filter :"));
+            tfFilter.addActionListener(e -> filterRows(sorter, tfFilter.getText()));
+            bottomPanel.add(tfFilter);
             JButton backBtn = new JButton("Back");
-            backBtn.setBackground(new Color(220, 80, 70));
+            backBtn.setBackground(Theme.ACCENT);
             backBtn.setForeground(Color.WHITE);
-            backBtn.setFont(new Font("SansSerif", Font.BOLD, 15));
+            backBtn.setFont(Theme.BOLD_15);
             backBtn.setFocusPainted(false);
             backBtn.setPreferredSize(new Dimension(100, 35));
-            backBtn.setBorder(BorderFactory.createLineBorder(new Color(220, 80, 70), 2, true));
-            backBtn.addActionListener(e -> dispose());
+            backBtn.setBorder(BorderFactory.createLineBorder(Theme.ACCENT, 2, true));
+            backBtn.addActionListener(e -> setVisible(false));
             bottomPanel.add(backBtn);
             add(bottomPanel, BorderLayout.SOUTH);
         }
+
+        @Override
+        public void refresh() {
+            RowLoader.cancel(loader);
+            tfFilter.setText("");
+            sorter.setRowFilter(null);
+            feed.start();
+            loader = new RowLoader<>(() -> manager.viewOrdersByStatus(status), model, count -> { }).start();
+        }
     }
 
 
-    static class UpdateOrderDialog extends JDialog {
+    static class UpdateOrderDialog extends JDialog implements Reusable {
         private final OrderManager manager;
         private JTextField tfOrderID;
         private JTextField tfNewQuantity;
@@ -922,7 +3820,14 @@ public class BurgerShopApp {
             
             updateQtyBtn.addActionListener(e -> updateQuantity());
             updateStatusBtn.addActionListener(e -> updateStatus());
-            closeBtn.addActionListener(e -> dispose());
+            closeBtn.addActionListener(e -> setVisible(false));
+        }
+
+        @Override
+        public void refresh() {
+            tfOrderID.setText("");
+            tfNewQuantity.setText("");
+            statusCombo.setSelectedIndex(0);
         }
 
         private void updateQuantity() {
@@ -951,6 +3856,8 @@ public class BurgerShopApp {
                 }
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Invalid quantity!");
+            } catch (UncheckedIOException ex) {
+                showNotSaved(this, "The quantity was updated", ex);
             }
         }
 
@@ -963,7 +3870,13 @@ public class BurgerShopApp {
             }
 
             OrderStatus newStatus = (OrderStatus) statusCombo.getSelectedItem();
-            boolean success = manager.updateOrderStatus(orderID, newStatus);
+            boolean success;
+            try {
+                success = manager.updateOrderStatus(orderID, newStatus);
+            } catch (UncheckedIOException ex) {
+                showNotSaved(this, "The status was updated", ex);
+                return;
+            }
 
             if (success) {
                 JOptionPane.showMessageDialog(this, "Status updated successfully!");
@@ -0,0 +1,84 @@
+package burgershop;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures OrderManager.addOrder against the same pre-filled histories as
+ * OrderManagerBenchmark. Every call adds an order, so each iteration is a
+ * single batch of BATCH adds into a freshly filled manager: a timed iteration
+ * would add millions and measure a history far larger than historySize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class AddOrderBenchmark {
+    private static final int ORDER_KEYS = 1 << 16;
+    // Small next to the smallest history, so it grows by at most a tenth
+    private static final int BATCH = 100;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int historySize;
+
+    @Param({"ALL_PREPARING", "LUNCH_RUSH", "END_OF_DAY"})
+    public OrderManagerBenchmark.StatusMix statusMix;
+
+    @Param({"LIVE", "RESTORED"})
+    public OrderManagerBenchmark.Source source;
+
+    private BurgerShopApp.OrderManager manager;
+    private Path snapshotDir;
+    // Repeat customers at the till, as in the history
+    private String[] names;
+    private String[] phones;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void pickCustomers() {
+        Random random = new Random(7);
+        names = new String[ORDER_KEYS];
+        phones = new String[ORDER_KEYS];
+        for (int i = 0; i < ORDER_KEYS; i++) {
+            int customer = random.nextInt(OrderManagerBenchmark.DISTINCT_CUSTOMERS);
+            names[i] = OrderManagerBenchmark.customerName(customer);
+            phones[i] = OrderManagerBenchmark.customerPhone(customer);
+        }
+        // A batch is too short to get addOrder compiled, so do that on a throwaway manager
+        BurgerShopApp.OrderManager warm = new BurgerShopApp.OrderManager();
+        for (int i = 0; i < ORDER_KEYS; i++) warm.addOrder(names[i], phones[i], 2);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillHistory() {
+        Random random = new Random(42);
+        if (source == OrderManagerBenchmark.Source.RESTORED) {
+            snapshotDir = OrderManagerBenchmark.tempDir();
+            manager = OrderManagerBenchmark.restoredManager(historySize, statusMix, random, snapshotDir);
+        } else {
+            manager = OrderManagerBenchmark.filledManager(historySize, statusMix, random);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteSnapshot() {
+        if (snapshotDir != null) OrderManagerBenchmark.deleteDir(snapshotDir);
+        snapshotDir = null;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BurgerShopApp.Order addOrder() {
+        BurgerShopApp.Order last = null;
+        for (int n = 0; n < BATCH; n++) {
+            int i = cursor = (cursor + 1) & (ORDER_KEYS - 1);
+            last = manager.addOrder(names[i], phones[i], 2);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,201 @@
+package burgershop;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each OrderManager query path against a pre-filled history, so a
+ * change that makes a lookup scale with the history size shows up as a slope
+ * across the historySize parameter. The RESTORED source loads most of that
+ * history from a snapshot first, so the queries also merge the snapshot's
+ * history store with live orders as they do after a restart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class OrderManagerBenchmark {
+
+    // Share of orders still PREPARING and share DELIVERED; the rest are CANCELLED
+    public enum StatusMix {
+        ALL_PREPARING(1.0, 0.0),
+        LUNCH_RUSH(0.3, 0.6),
+        END_OF_DAY(0.02, 0.9);
+
+        final double preparing;
+        final double delivered;
+
+        StatusMix(double preparing, double delivered) {
+            this.preparing = preparing;
+            this.delivered = delivered;
+        }
+    }
+
+    // Where the history comes from: all added in memory, or mostly restored from a snapshot
+    public enum Source {
+        LIVE, RESTORED
+    }
+
+    static final int DISTINCT_CUSTOMERS = 5_000;
+    private static final int LOOKUP_KEYS = 1 << 16;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int historySize;
+
+    @Param({"ALL_PREPARING", "LUNCH_RUSH", "END_OF_DAY"})
+    public StatusMix statusMix;
+
+    @Param({"LIVE", "RESTORED"})
+    public Source source;
+
+    private BurgerShopApp.OrderManager manager;
+    private Path snapshotDir;
+    private String[] orderIDs;
+    private String[] customerIDs;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void fillHistory() {
+        Random random = new Random(42);
+        if (source == Source.RESTORED) {
+            snapshotDir = tempDir();
+            manager = restoredManager(historySize, statusMix, random, snapshotDir);
+        } else {
+            manager = filledManager(historySize, statusMix, random);
+        }
+        orderIDs = new String[LOOKUP_KEYS];
+        customerIDs = new String[LOOKUP_KEYS];
+        List<BurgerShopApp.Order> all = manager.getAllOrders();
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            BurgerShopApp.Order o = all.get(random.nextInt(all.size()));
+            // Mixed case, as typed at the till
+            orderIDs[i] = (i & 1) == 0 ? o.getOrderID() : o.getOrderID().toLowerCase();
+            customerIDs[i] = o.getCustomer().getCustomerID();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() {
+        if (snapshotDir != null) deleteDir(snapshotDir);
+    }
+
+    // historySize orders spread over DISTINCT_CUSTOMERS repeat customers, then settled per the mix
+    static BurgerShopApp.OrderManager filledManager(int historySize, StatusMix statusMix, Random random) {
+        BurgerShopApp.OrderManager manager = new BurgerShopApp.OrderManager();
+        addOrders(manager, historySize, statusMix, random);
+        return manager;
+    }
+
+    /**
+     * The same history, nine tenths of it snapshotted into dir and loaded into a
+     * fresh manager, then the last tenth added live on top. The journal is only
+     * attached for the snapshot, so the live tail is not written to disk.
+     */
+    static BurgerShopApp.OrderManager restoredManager(int historySize, StatusMix statusMix, Random random, Path dir) {
+        int liveCount = historySize / 10;
+        BurgerShopApp.OrderManager original = filledManager(historySize - liveCount, statusMix, random);
+        BurgerShopApp.OrderManager manager = new BurgerShopApp.OrderManager();
+        try {
+            BurgerShopApp.OrderJournal.open(dir, original);
+            BurgerShopApp.OrderSnapshot.take(dir, original);
+            original.close();
+            BurgerShopApp.OrderJournal.open(dir, manager);
+            manager.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        addOrders(manager, liveCount, statusMix, random);
+        return manager;
+    }
+
+    static Path tempDir() {
+        try {
+            return Files.createTempDirectory("burgershop-bench");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // The snapshot and journal segments sit directly in dir
+    static void deleteDir(Path dir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        } catch (IOException ex) {
+            // The snapshot stays mapped until the fork exits, which some platforms refuse to delete
+            System.err.println("Could not delete " + dir + ": " + ex);
+        }
+    }
+
+    private static void addOrders(BurgerShopApp.OrderManager manager, int count, StatusMix statusMix, Random random) {
+        for (int i = 0; i < count; i++) {
+            int customer = random.nextInt(DISTINCT_CUSTOMERS);
+            BurgerShopApp.Order o = manager.addOrder(customerName(customer), customerPhone(customer),
+                    1 + random.nextInt(10));
+            double roll = random.nextDouble();
+            if (roll >= statusMix.preparing) {
+                manager.updateOrderStatus(o.getOrderID(), roll < statusMix.preparing + statusMix.delivered
+                        ? BurgerShopApp.OrderStatus.DELIVERED : BurgerShopApp.OrderStatus.CANCELLED);
+            }
+        }
+    }
+
+    // Customers are told apart by phone, so each one needs its own number
+    static String customerName(int customer) {
+        return "Customer " + customer;
+    }
+
+    static String customerPhone(int customer) {
+        return String.format("07%08d", customer);
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (LOOKUP_KEYS - 1);
+    }
+
+    @Benchmark
+    public BurgerShopApp.Order searchOrder() {
+        return manager.searchOrder(orderIDs[next()]);
+    }
+
+    @Benchmark
+    public List<BurgerShopApp.Order> searchCustomerOrders() {
+        return manager.searchCustomerOrders(customerIDs[next()]);
+    }
+
+    @Benchmark
+    public List<BurgerShopApp.Order> viewPreparingOrders() {
+        return manager.viewOrdersByStatus(BurgerShopApp.OrderStatus.PREPARING);
+    }
+
+    @Benchmark
+    public List<BurgerShopApp.Order> viewDeliveredOrders() {
+        return manager.viewOrdersByStatus(BurgerShopApp.OrderStatus.DELIVERED);
+    }
+
+    @Benchmark
+    public List<Map.Entry<BurgerShopApp.Customer, Integer>> getCustomersByTotalDesc() {
+        return manager.getCustomersByTotalDesc();
+    }
+
+    @Benchmark
+    public List<Map.Entry<BurgerShopApp.Customer, Integer>> getTopTenCustomers() {
+        return manager.getTopCustomers(10);
+    }
+
+    @Benchmark
+    public List<BurgerShopApp.Order> getAllOrders() {
+        return manager.getAllOrders();
+    }
+}
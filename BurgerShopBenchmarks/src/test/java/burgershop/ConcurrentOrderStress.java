@@ -0,0 +1,166 @@
+package burgershop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Several tills share one OrderManager: each adds orders singly and in
+ * batches for a small pool of repeat customers, and changes quantities and
+ * statuses of orders the others added. Afterwards every ID must have been
+ * handed out exactly once, every order must sit in the bucket for its status
+ * and in its customer's list in ascending order, every order may have left PREPARING only once,
+ * and the leaderboard totals must match the orders. The same work is run
+ * with 1, 2, 4, ... threads up to the core count and the throughput printed.
+ * Exits with status 1 on the first broken invariant; run by mvn test.
+ */
+public class ConcurrentOrderStress {
+    private static final int CUSTOMERS = 200;
+    private static final int BATCH = 5;
+
+    // What one till did, checked once all tills have finished
+    private static class Till extends Thread {
+        final BurgerShopApp.OrderManager manager;
+        final int operations;
+        final List<BurgerShopApp.Order> added = new ArrayList<>();
+        final List<Long> settled = new ArrayList<>();
+        final List<BurgerShopApp.OrderStatus> settledTo = new ArrayList<>();
+
+        Till(BurgerShopApp.OrderManager manager, int operations) {
+            this.manager = manager;
+            this.operations = operations;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                int roll = random.nextInt(100);
+                if (roll < 60) {
+                    int c = random.nextInt(CUSTOMERS);
+                    added.add(manager.addOrder(name(c), phone(c), 1 + random.nextInt(5)));
+                } else if (roll < 70) {
+                    List<BurgerShopApp.OrderManager.NewOrder> batch = new ArrayList<>(BATCH);
+                    for (int b = 0; b < BATCH; b++) {
+                        int c = random.nextInt(CUSTOMERS);
+                        batch.add(new BurgerShopApp.OrderManager.NewOrder(name(c), phone(c), 1 + random.nextInt(5)));
+                    }
+                    added.addAll(manager.addOrders(batch));
+                } else if (roll < 80) {
+                    long target = 1 + random.nextLong(Math.max(1, manager.getOrderCounter()));
+                    manager.updateOrderQuantity(target, 1 + random.nextInt(9));
+                } else {
+                    long target = 1 + random.nextLong(Math.max(1, manager.getOrderCounter()));
+                    BurgerShopApp.OrderStatus to = random.nextBoolean()
+                            ? BurgerShopApp.OrderStatus.DELIVERED : BurgerShopApp.OrderStatus.CANCELLED;
+                    if (manager.updateOrderStatus(target, to)) {
+                        settled.add(target);
+                        settledTo.add(to);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            run(threads, operations);
+            if (threads == maxThreads) break;
+        }
+        System.out.println("All invariants held.");
+    }
+
+    private static void run(int threads, int operations) throws InterruptedException {
+        BurgerShopApp.OrderManager manager = new BurgerShopApp.OrderManager();
+        List<Till> tills = new ArrayList<>();
+        for (int t = 0; t < threads; t++) tills.add(new Till(manager, operations / threads));
+        long start = System.nanoTime();
+        for (Till till : tills) till.start();
+        for (Till till : tills) till.join();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("threads=%d  %,.0f ops/s%n", threads, operations / (elapsed / 1e9));
+        check(manager, tills);
+    }
+
+    private static void check(BurgerShopApp.OrderManager manager, List<Till> tills) {
+        List<BurgerShopApp.Order> added = new ArrayList<>();
+        for (Till till : tills) added.addAll(till.added);
+
+        // No lost or duplicate IDs: exactly 1..n, each found again by number
+        Set<Long> ids = new HashSet<>();
+        for (BurgerShopApp.Order o : added) {
+            require(ids.add(o.getOrderNumber()), "order number handed out twice: " + o.getOrderNumber());
+            require(manager.searchOrder(o.getOrderNumber()) == o, "order not found by number: " + o.getOrderID());
+        }
+        require(manager.getOrderCounter() == added.size(),
+                "counter " + manager.getOrderCounter() + " but " + added.size() + " orders added");
+        for (long n = 1; n <= added.size(); n++) require(ids.contains(n), "order number skipped: " + n);
+        require(manager.getAllOrders().size() == added.size(), "getAllOrders lost or repeated orders");
+
+        // Every order in exactly the bucket for its current status
+        int bucketed = 0;
+        for (BurgerShopApp.OrderStatus status : BurgerShopApp.OrderStatus.values()) {
+            List<BurgerShopApp.Order> bucket = manager.viewOrdersByStatus(status);
+            for (BurgerShopApp.Order o : bucket) {
+                require(o.getStatus() == status, o.getOrderID() + " is " + o.getStatus() + " but in the " + status + " bucket");
+            }
+            require(new HashSet<>(bucket).size() == bucket.size(), "order repeated in the " + status + " bucket");
+            bucketed += bucket.size();
+        }
+        require(bucketed == added.size(), bucketed + " orders in buckets but " + added.size() + " added");
+
+        // Each order left PREPARING at most once, and for the status that won
+        Map<Long, BurgerShopApp.OrderStatus> settled = new HashMap<>();
+        for (Till till : tills) {
+            for (int i = 0; i < till.settled.size(); i++) {
+                long n = till.settled.get(i);
+                require(settled.put(n, till.settledTo.get(i)) == null, "order settled twice: " + n);
+                require(manager.searchOrder(n).getStatus() == till.settledTo.get(i), "order " + n + " lost its status");
+            }
+        }
+
+        // One customer per name and phone, whose list and total match its orders
+        Map<BurgerShopApp.Customer, List<BurgerShopApp.Order>> byCustomer = new HashMap<>();
+        for (BurgerShopApp.Order o : added) {
+            byCustomer.computeIfAbsent(o.getCustomer(), k -> new ArrayList<>()).add(o);
+        }
+        require(manager.getCustomerCounter() == byCustomer.size(),
+                manager.getCustomerCounter() + " customers registered for " + byCustomer.size() + " in use");
+        Map<BurgerShopApp.Customer, Integer> totals = manager.getCustomerTotals();
+        for (Map.Entry<BurgerShopApp.Customer, List<BurgerShopApp.Order>> e : byCustomer.entrySet()) {
+            BurgerShopApp.Customer c = e.getKey();
+            require(manager.findCustomer(c.getName(), c.getPhone()) == c, "two customers for " + c.getName());
+            List<BurgerShopApp.Order> listed = manager.searchCustomerOrders(c.getCustomerNumber());
+            require(listed.size() == e.getValue().size() && new HashSet<>(listed).equals(new HashSet<>(e.getValue())),
+                    c.getCustomerID() + " lists " + listed.size() + " orders but has " + e.getValue().size());
+            for (int i = 1; i < listed.size(); i++) {
+                require(listed.get(i - 1).getOrderNumber() < listed.get(i).getOrderNumber(),
+                        c.getCustomerID() + " lists " + listed.get(i - 1).getOrderID() + " before " + listed.get(i).getOrderID());
+            }
+            int total = 0;
+            for (BurgerShopApp.Order o : e.getValue()) total += o.getTotal();
+            require(Integer.valueOf(total).equals(totals.get(c)), c.getCustomerID() + " total " + totals.get(c) + " but orders sum to " + total);
+        }
+    }
+
+    private static String name(int customer) {
+        return "Till Customer " + customer;
+    }
+
+    private static String phone(int customer) {
+        return String.format("07%08d", customer);
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}